@@ -22,7 +22,6 @@ import net.openhft.chronicle.bytes.util.DecoratedBufferUnderflowException;
 import net.openhft.chronicle.core.ReferenceCounter;
 import net.openhft.chronicle.core.annotation.UsedViaReflection;
 import net.openhft.chronicle.core.io.IORuntimeException;
-import net.openhft.chronicle.core.io.UnsafeText;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -205,14 +204,9 @@ public abstract class AbstractBytes<Underlying> implements Bytes<Underlying> {
     }
 
     public AbstractBytes append(double d) throws BufferOverflowException {
-        boolean fits = canWriteDirect(380);
-        if (!fits) {
-            double ad = Math.abs(d);
-            fits = 1e-6 <= ad && ad < 1e20 && canWriteDirect(24);
-        }
-        if (fits) {
+        if (canWriteDirect(DoubleFormatter.MAX_LENGTH)) {
             long address = addressForWrite(writePosition);
-            long address2 = UnsafeText.appendDouble(address, d);
+            long address2 = DoubleFormatter.append(address, d);
             writeSkip(address2 - address);
             return this;
         }
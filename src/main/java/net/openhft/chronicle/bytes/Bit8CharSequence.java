@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.bytes.util.DecoratedBufferUnderflowException;
+import net.openhft.chronicle.core.Maths;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.BufferUnderflowException;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * A reusable CharSequence over a range of 8-bit text in a BytesStore or Bytes, so a field can be used as a key
+ * without copying it into a String or StringBuilder.
+ * <p>
+ * The hashCode() is the {@link RandomDataInput#fastHash(long, int)} of the bytes, cached until the range
+ * changes, and equals() and compareTo() compare bytes. As the hashCode() isn't that of a String, a
+ * Bit8CharSequence is only equal to another Bit8CharSequence, so the keys of a map looked up this way
+ * should be made with {@link #copyOf(CharSequence)}. Use {@link #contentEquals(CharSequence)} to compare with
+ * any other CharSequence.
+ * <p>
+ * The BytesStore is not reserved, so the range can only be used while the bytes it points at are unchanged.
+ * This class is not thread safe.
+ */
+@SuppressWarnings("rawtypes")
+public class Bit8CharSequence implements CharSequence, Comparable<CharSequence> {
+    @NotNull
+    private BytesStore bytesStore = NoBytesStore.noBytesStore();
+    private long offset;
+    private int length;
+    private int hash;
+
+    /**
+     * @return a Bit8CharSequence over its own copy of <code>text</code>, suitable as the key of a map.
+     * Chars above 255 are replaced with '?'.
+     */
+    @NotNull
+    public static Bit8CharSequence copyOf(@NotNull CharSequence text) {
+        byte[] bytes = text.toString().getBytes(ISO_8859_1);
+        return new Bit8CharSequence().set(BytesStore.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * Point at a range of 8-bit text.
+     */
+    @NotNull
+    public Bit8CharSequence set(@NotNull BytesStore bytesStore, long offset, int length)
+            throws BufferUnderflowException {
+        if (offset < bytesStore.start() || length < 0 || offset + length > bytesStore.readLimit())
+            throw new DecoratedBufferUnderflowException(String.format(
+                    "offset: %d, length: %d, start: %d, readLimit: %d",
+                    offset, length, bytesStore.start(), bytesStore.readLimit()));
+        this.bytesStore = bytesStore;
+        this.offset = offset;
+        this.length = length;
+        this.hash = 0;
+        return this;
+    }
+
+    /**
+     * Point at the remaining bytes of <code>bytes</code> without consuming them.
+     */
+    @NotNull
+    public Bit8CharSequence set(@NotNull Bytes bytes) throws BufferUnderflowException {
+        return set(bytes, bytes.readPosition(), Maths.toUInt31(bytes.readRemaining()));
+    }
+
+    @NotNull
+    public Bit8CharSequence clear() {
+        bytesStore = NoBytesStore.noBytesStore();
+        offset = length = hash = 0;
+        return this;
+    }
+
+    @NotNull
+    public BytesStore bytesStore() {
+        return bytesStore;
+    }
+
+    public long offset() {
+        return offset;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+        try {
+            return (char) bytesStore.readUnsignedByte(offset + index);
+        } catch (BufferUnderflowException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * @return a new Bit8CharSequence over part of the same range.
+     */
+    @NotNull
+    @Override
+    public Bit8CharSequence subSequence(int start, int end) throws IndexOutOfBoundsException {
+        if (start < 0 || start > end || end > length)
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length);
+        return new Bit8CharSequence().set(bytesStore, offset + start, end - start);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0 && length > 0)
+            hash = h = bytesStore.fastHash(offset, length);
+        return h;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof Bit8CharSequence))
+            return false;
+        Bit8CharSequence other = (Bit8CharSequence) obj;
+        return length == other.length
+                && (hash == 0 || other.hash == 0 || hash == other.hash)
+                && ByteScanner.equalBytes(bytesStore, offset, other.bytesStore, other.offset, length);
+    }
+
+    /**
+     * @return whether the chars are the same as those of any CharSequence
+     */
+    public boolean contentEquals(@Nullable CharSequence cs) {
+        if (cs instanceof Bit8CharSequence)
+            return equals(cs);
+        if (cs == null || cs.length() != length)
+            return false;
+        for (int i = 0; i < length; i++)
+            if (charAt(i) != cs.charAt(i))
+                return false;
+        return true;
+    }
+
+    /**
+     * Compares chars lexicographically like String.compareTo, comparing eight bytes at a time with another
+     * Bit8CharSequence.
+     */
+    @Override
+    public int compareTo(@NotNull CharSequence cs) {
+        if (!(cs instanceof Bit8CharSequence)) {
+            int len = Math.min(length, cs.length());
+            for (int i = 0; i < len; i++) {
+                int cmp = charAt(i) - cs.charAt(i);
+                if (cmp != 0)
+                    return cmp;
+            }
+            return length - cs.length();
+        }
+        Bit8CharSequence other = (Bit8CharSequence) cs;
+        int len = Math.min(length, other.length);
+        int i = 0;
+        try {
+            for (; i <= len - 8; i += 8) {
+                long a = ByteScanner.readWord(bytesStore, offset + i);
+                long b = ByteScanner.readWord(other.bytesStore, other.offset + i);
+                // with the first byte in the highest bits, the first which differs decides.
+                if (a != b)
+                    return Long.compareUnsigned(Long.reverseBytes(a), Long.reverseBytes(b));
+            }
+            for (; i < len; i++) {
+                int cmp = bytesStore.readUnsignedByte(offset + i) - other.bytesStore.readUnsignedByte(other.offset + i);
+                if (cmp != 0)
+                    return cmp;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new AssertionError(e);
+        }
+        return length - other.length;
+    }
+
+    /**
+     * @return a copy of the text as a String.
+     */
+    @NotNull
+    @Override
+    public String toString() {
+        return BytesInternal.to8bitString(bytesStore, offset, length);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteOrder;
+
+/**
+ * Writes and reads bit fields of 1 to 64 bits to and from a Bytes, most significant bit first.
+ * <p>
+ * Bits written are buffered in a long and appended at the writePosition() a long at a time, so a field may
+ * span two longs. {@link #flush()} writes any bits still buffered, padded with zeros to a whole byte.
+ * Bits read are loaded from the readPosition() a long at a time, and {@link #readAlign()} gives back any
+ * whole bytes loaded but not read, leaving the readPosition() after the last bit read.
+ * <p>
+ * The same BitBytes can be used for writing and reading, but not both at once. This class is not thread safe.
+ */
+@SuppressWarnings("rawtypes")
+public class BitBytes {
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    @NotNull
+    private final Bytes bytes;
+    private long writeBits;
+    private int writeBitCount = 0;
+    private long readBits;
+    private int readBitCount = 0;
+
+    public BitBytes(@NotNull Bytes bytes) {
+        this.bytes = bytes;
+    }
+
+    @NotNull
+    public Bytes bytes() {
+        return bytes;
+    }
+
+    /**
+     * Write the low <code>width</code> bits of <code>value</code>.
+     *
+     * @param width 1 to 64
+     */
+    @NotNull
+    public BitBytes writeBits(long value, int width) throws BufferOverflowException, IllegalArgumentException {
+        checkWidth(width);
+        if (width < 64)
+            value &= (1L << width) - 1;
+        int free = 64 - writeBitCount;
+        if (width < free) {
+            writeBits |= value << (free - width);
+            writeBitCount += width;
+            return this;
+        }
+        int rest = width - free;
+        bytes.writeLong(bigEndian(writeBits | value >>> rest));
+        // a shift of 64 would be a shift of 0
+        writeBits = rest == 0 ? 0 : value << (64 - rest);
+        writeBitCount = rest;
+        return this;
+    }
+
+    @NotNull
+    public BitBytes writeBit(boolean bit) throws BufferOverflowException {
+        return writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Write the bits still buffered, padding the last byte with zeros.
+     */
+    @NotNull
+    public BitBytes flush() throws BufferOverflowException {
+        for (; writeBitCount > 0; writeBitCount -= 8) {
+            bytes.writeByte((byte) (writeBits >>> 56));
+            writeBits <<= 8;
+        }
+        writeBits = 0;
+        writeBitCount = 0;
+        return this;
+    }
+
+    /**
+     * @return the number of bits written but not flushed yet, 0 to 63
+     */
+    public int writeBitsBuffered() {
+        return writeBitCount;
+    }
+
+    /**
+     * @param width 1 to 64
+     * @return the next <code>width</code> bits as an unsigned value
+     */
+    public long readBits(int width) throws BufferUnderflowException, IllegalArgumentException {
+        checkWidth(width);
+        if (width <= readBitCount) {
+            long value = readBits >>> (64 - width);
+            readBits = width == 64 ? 0 : readBits << width;
+            readBitCount -= width;
+            return value;
+        }
+        int rest = width - readBitCount;
+        long value = readBitCount == 0 ? 0 : readBits >>> (64 - readBitCount);
+        load();
+        if (rest > readBitCount)
+            throw new BufferUnderflowException();
+        value = (rest == 64 ? 0 : value << rest) | (readBits >>> (64 - rest));
+        readBits = rest == 64 ? 0 : readBits << rest;
+        readBitCount -= rest;
+        return value;
+    }
+
+    /**
+     * @param width 1 to 64
+     * @return the next <code>width</code> bits as a two's complement value
+     */
+    public long readSignedBits(int width) throws BufferUnderflowException, IllegalArgumentException {
+        return readBits(width) << (64 - width) >> (64 - width);
+    }
+
+    public boolean readBit() throws BufferUnderflowException {
+        return readBits(1) != 0;
+    }
+
+    /**
+     * Skip to the next whole byte and give back the whole bytes loaded but not read yet, so the readPosition()
+     * is after the last byte read from.
+     */
+    @NotNull
+    public BitBytes readAlign() {
+        bytes.readPosition(bytes.readPosition() - (readBitCount >>> 3));
+        readBits = 0;
+        readBitCount = 0;
+        return this;
+    }
+
+    /**
+     * Load the next long, or the bytes remaining if there are fewer.
+     */
+    private void load() throws BufferUnderflowException {
+        long remaining = bytes.readRemaining();
+        if (remaining >= 8) {
+            readBits = bigEndian(bytes.readLong());
+            readBitCount = 64;
+            return;
+        }
+        if (remaining <= 0)
+            throw new BufferUnderflowException();
+        long bits = 0;
+        for (int i = 0; i < remaining; i++)
+            bits |= (bytes.readUnsignedByte() & 0xFFL) << (56 - 8 * i);
+        readBits = bits;
+        readBitCount = (int) remaining * 8;
+    }
+
+    private static long bigEndian(long word) {
+        return LITTLE_ENDIAN ? Long.reverseBytes(word) : word;
+    }
+
+    private static void checkWidth(int width) throws IllegalArgumentException {
+        if (width < 1 || width > 64)
+            throw new IllegalArgumentException("width: " + width);
+    }
+}
@@ -0,0 +1,577 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.bytes.util.DecoratedBufferUnderflowException;
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import org.jetbrains.annotations.NotNull;
+import sun.misc.Unsafe;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteOrder;
+
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+
+/**
+ * Searches, compares, sums and parses bytes eight at a time by treating a long as eight lanes of one byte (SWAR).
+ * <p>
+ * Each test produces a mask with the top bit of every matching byte set and no other bits,
+ * so the first match is found with one count of trailing (or on big endian, leading) zeros.
+ */
+@SuppressWarnings("rawtypes")
+enum ByteScanner {
+    ;
+    static final long ONES = 0x0101010101010101L;
+    static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+    static final long HIGH = 0x8080808080808080L;
+    static final long EVEN_BYTES = 0x00FF00FF00FF00FFL;
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+    private static final Memory MEMORY = OS.memory();
+    private static final long BYTES_OFFSET = Unsafe.ARRAY_BYTE_BASE_OFFSET;
+
+    /**
+     * @return a mask of the bytes in <code>word</code> equal to the byte repeated in <code>pattern</code>
+     */
+    static long equalTo(long word, long pattern) {
+        long x = word ^ pattern;
+        return ~(((x & LOW7) + LOW7) | x | LOW7);
+    }
+
+    /**
+     * @param below7 <code>(128 - n) * ONES</code> for bytes less than n, where n is at most 128
+     * @return a mask of the unsigned bytes in <code>word</code> less than n
+     */
+    static long lessThan(long word, long below7) {
+        return ~(((word & LOW7) + below7) | word) & HIGH;
+    }
+
+    static long pattern(int b) {
+        return (b & 0xFFL) * ONES;
+    }
+
+    static long below(int n) {
+        assert 0 < n && n <= 128;
+        return (128L - n) * ONES;
+    }
+
+    /**
+     * @return the index of the first byte in the mask, in memory order
+     */
+    static int firstIndex(long mask) {
+        return (LITTLE_ENDIAN ? Long.numberOfTrailingZeros(mask) : Long.numberOfLeadingZeros(mask)) >>> 3;
+    }
+
+    /**
+     * @return the address of <code>from</code> if the range is contiguous direct memory, otherwise 0
+     */
+    static long address(@NotNull RandomDataInput in, long from, long to) throws BufferUnderflowException {
+        if (to - from < 8 || !in.isDirectMemory())
+            return 0;
+        if (in instanceof VanillaBytes)
+            return in.addressForRead(from);
+        if (in instanceof NativeBytesStore && !(in instanceof MappedBytesStore)) {
+            NativeBytesStore nbs = (NativeBytesStore) in;
+            return nbs.address + nbs.translate(from);
+        }
+        return 0;
+    }
+
+    /**
+     * @return the offset of the first <code>b</code> between <code>from</code> inclusive and <code>to</code>
+     * exclusive, or -1 if there isn't one
+     */
+    static long indexOf(@NotNull RandomDataInput in, long from, long to, byte b) throws BufferUnderflowException {
+        long pattern = pattern(b);
+        long i = from;
+        long address = address(in, from, to);
+        if (address != 0) {
+            for (long base = address - from; i <= to - 8; i += 8) {
+                long mask = equalTo(MEMORY.readLong(base + i), pattern);
+                if (mask != 0)
+                    return i + firstIndex(mask);
+            }
+        } else {
+            in = unchecked(in);
+            for (; i <= to - 8; i += 8) {
+                long mask = equalTo(in.readLong(i), pattern);
+                if (mask != 0)
+                    return i + firstIndex(mask);
+            }
+        }
+        for (; i < to; i++)
+            if (in.readByte(i) == b)
+                return i;
+        return -1;
+    }
+
+    /**
+     * @return the offset of the first of any of <code>bytes</code>, or -1 if there isn't one
+     */
+    static long indexOfAny(@NotNull RandomDataInput in, long from, long to, @NotNull byte... bytes)
+            throws BufferUnderflowException {
+        if (bytes.length == 1)
+            return indexOf(in, from, to, bytes[0]);
+        long[] patterns = new long[bytes.length];
+        for (int j = 0; j < bytes.length; j++)
+            patterns[j] = pattern(bytes[j]);
+        return indexOfAny(in, from, to, patterns);
+    }
+
+    /**
+     * @param patterns from {@link #pattern} for each byte, so they can be reused without creating any objects
+     * @return the offset of the first of any of the bytes, or -1 if there isn't one
+     */
+    static long indexOfAny(@NotNull RandomDataInput in, long from, long to, @NotNull long[] patterns)
+            throws BufferUnderflowException {
+        long i = from;
+        in = unchecked(in);
+        for (; i <= to - 8; i += 8) {
+            long word = in.readLong(i);
+            long mask = 0;
+            for (long pattern : patterns)
+                mask |= equalTo(word, pattern);
+            if (mask != 0)
+                return i + firstIndex(mask);
+        }
+        for (; i < to; i++) {
+            byte b = in.readByte(i);
+            for (long pattern : patterns)
+                if (b == (byte) pattern)
+                    return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return whether {@link #indexOfStop} can scan for this tester a word at a time.
+     */
+    static boolean canScan(@NotNull StopCharTester tester) {
+        if (!(tester instanceof StopCharTesters))
+            return false;
+        switch ((StopCharTesters) tester) {
+            case COMMA_STOP:
+            case COMMA_SPACE_STOP:
+            case CONTROL_STOP:
+            case QUOTES:
+            case SINGLE_QUOTES:
+            case EQUALS:
+            case ALL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static final long BELOW_SPACE = below(' ');
+    private static final long BELOW_SPACE_1 = below(' ' + 1);
+    private static final long COMMAS = pattern(',');
+    private static final long QUOTES = pattern('"');
+    private static final long SINGLE_QUOTES = pattern('\'');
+    private static final long EQUALS = pattern('=');
+
+    /**
+     * @return a mask of the unsigned bytes which are stop chars for a tester where canScan(tester) is true
+     */
+    static long stopMask(@NotNull StopCharTesters tester, long word) {
+        switch (tester) {
+            case COMMA_STOP:
+                return lessThan(word, BELOW_SPACE) | equalTo(word, COMMAS);
+            case COMMA_SPACE_STOP:
+                return lessThan(word, BELOW_SPACE_1) | equalTo(word, COMMAS);
+            case CONTROL_STOP:
+                return lessThan(word, BELOW_SPACE);
+            case QUOTES:
+                return equalTo(word, QUOTES) | equalTo(word, 0L);
+            case SINGLE_QUOTES:
+                return equalTo(word, SINGLE_QUOTES) | equalTo(word, 0L);
+            case EQUALS:
+                return equalTo(word, EQUALS) | equalTo(word, 0L);
+            case ALL:
+                return 0L;
+            default:
+                throw new IllegalArgumentException("Cannot scan for " + tester);
+        }
+    }
+
+    /**
+     * Find the first unsigned byte which is a stop char, and optionally the first which isn't ASCII.
+     *
+     * @param tester      where canScan(tester) is true
+     * @param stopOnHighBit whether a byte of 0x80 or more ends the scan
+     * @return the offset of the byte found or <code>to</code> if there is none.
+     */
+    static long indexOfStop(@NotNull RandomDataInput in, long from, long to, @NotNull StopCharTester tester,
+                            boolean stopOnHighBit) throws BufferUnderflowException {
+        StopCharTesters sct = (StopCharTesters) tester;
+        long highBits = stopOnHighBit ? HIGH : 0L;
+        long i = from;
+        long address = address(in, from, to);
+        if (address != 0) {
+            for (long base = address - from; i <= to - 8; i += 8) {
+                long word = MEMORY.readLong(base + i);
+                long mask = stopMask(sct, word) | (word & highBits);
+                if (mask != 0)
+                    return i + firstIndex(mask);
+            }
+        } else {
+            in = unchecked(in);
+            for (; i <= to - 8; i += 8) {
+                long word = in.readLong(i);
+                long mask = stopMask(sct, word) | (word & highBits);
+                if (mask != 0)
+                    return i + firstIndex(mask);
+            }
+        }
+        for (; i < to; i++) {
+            int c = in.readUnsignedByte(i);
+            if ((stopOnHighBit && c >= 0x80) || tester.isStopChar(c))
+                return i;
+        }
+        return to;
+    }
+
+    /**
+     * @return the offset of the first byte of 0x80 or more, or <code>to</code> if they are all ASCII.
+     */
+    static long indexOfNonAscii(@NotNull RandomDataInput in, long from, long to) throws BufferUnderflowException {
+        long i = from;
+        long address = address(in, from, to);
+        if (address != 0) {
+            for (long base = address - from; i <= to - 8; i += 8) {
+                long mask = MEMORY.readLong(base + i) & HIGH;
+                if (mask != 0)
+                    return i + firstIndex(mask);
+            }
+        } else {
+            in = unchecked(in);
+            for (; i <= to - 8; i += 8) {
+                long mask = in.readLong(i) & HIGH;
+                if (mask != 0)
+                    return i + firstIndex(mask);
+            }
+        }
+        for (; i < to; i++)
+            if (in.readByte(i) < 0)
+                return i;
+        return to;
+    }
+
+    /**
+     * Widen the leading ASCII bytes into <code>chars</code>, testing and copying a word at a time.
+     *
+     * @return the number of bytes copied, up to the first of 0x80 or more
+     */
+    static int copyAscii(@NotNull RandomDataInput in, long from, int length, @NotNull char[] chars)
+            throws BufferUnderflowException {
+        int i = 0;
+        long address = address(in, from, from + length);
+        if (address != 0) {
+            for (; i <= length - 8; i += 8) {
+                long word = readWord(address + i);
+                if ((word & HIGH) != 0)
+                    break;
+                widen(word, chars, i);
+            }
+        } else {
+            in = unchecked(in);
+            for (; i <= length - 8; i += 8) {
+                long word = readWord(in, from + i);
+                if ((word & HIGH) != 0)
+                    break;
+                widen(word, chars, i);
+            }
+        }
+        for (; i < length; i++) {
+            byte b = in.readByte(from + i);
+            if (b < 0)
+                break;
+            chars[i] = (char) b;
+        }
+        return i;
+    }
+
+    /**
+     * Copy the leading ASCII bytes into <code>bytes</code> e.g. the value of a Latin-1 StringBuilder,
+     * testing and copying a word at a time.
+     *
+     * @return the number of bytes copied, up to the first of 0x80 or more
+     */
+    static int copyAscii(@NotNull RandomDataInput in, long from, int length, @NotNull byte[] bytes)
+            throws BufferUnderflowException {
+        int i = 0;
+        long address = address(in, from, from + length);
+        if (address != 0) {
+            for (; i <= length - 8; i += 8) {
+                long word = MEMORY.readLong(address + i);
+                if ((word & HIGH) != 0)
+                    break;
+                UNSAFE.putLong(bytes, BYTES_OFFSET + i, word);
+            }
+        } else {
+            in = unchecked(in);
+            for (; i <= length - 8; i += 8) {
+                long word = in.readLong(from + i);
+                if ((word & HIGH) != 0)
+                    break;
+                UNSAFE.putLong(bytes, BYTES_OFFSET + i, word);
+            }
+        }
+        for (; i < length; i++) {
+            byte b = in.readByte(from + i);
+            if (b < 0)
+                break;
+            bytes[i] = b;
+        }
+        return i;
+    }
+
+    /**
+     * @param word from {@link #readWord}, all ASCII
+     */
+    static void widen(long word, @NotNull char[] chars, int index) {
+        for (int j = 0; j < 8; j++, word >>>= 8)
+            chars[index + j] = (char) (word & 0x7F);
+    }
+
+    /**
+     * @return the eight bytes of <code>bytes</code> from <code>index</code>, which must be at most
+     * <code>bytes.length - 8</code>, in the native byte order ready to be written with writeLong.
+     */
+    static long readLong(@NotNull byte[] bytes, int index) {
+        return UNSAFE.getLong(bytes, BYTES_OFFSET + index);
+    }
+
+    /**
+     * Compare two ranges a long at a time. Ranges which are read without a bounds check are checked once up front.
+     */
+    static boolean equalBytes(@NotNull RandomDataInput a, long aOffset, @NotNull RandomDataInput b, long bOffset, long length)
+            throws BufferUnderflowException {
+        checkRange(a, aOffset, length);
+        checkRange(b, bOffset, length);
+        long aAddress = address(a, aOffset, aOffset + length);
+        long bAddress = aAddress == 0 ? 0 : address(b, bOffset, bOffset + length);
+        long i = 0;
+        if (bAddress != 0) {
+            for (; i <= length - 8; i += 8)
+                if (MEMORY.readLong(aAddress + i) != MEMORY.readLong(bAddress + i))
+                    return false;
+        } else {
+            a = unchecked(a);
+            b = unchecked(b);
+            for (; i <= length - 8; i += 8)
+                if (a.readLong(aOffset + i) != b.readLong(bOffset + i))
+                    return false;
+        }
+        for (; i < length; i++)
+            if (a.readByte(aOffset + i) != b.readByte(bOffset + i))
+                return false;
+        return true;
+    }
+
+    /**
+     * Sum the bytes of direct memory, keeping four 16-bit partial sums in a long.
+     *
+     * @return the sum of the bytes modulo 256
+     */
+    static int byteCheckSum(long address, long length) {
+        int sum = 0;
+        long i = 0;
+        while (i <= length - 8) {
+            long lanes = 0;
+            // each lane gains at most 2 * 255 a word so it can't overflow in 128 words.
+            long end = Math.min(length - 7, i + 128 * 8);
+            for (; i < end; i += 8) {
+                long word = MEMORY.readLong(address + i);
+                lanes += (word & EVEN_BYTES) + ((word >>> 8) & EVEN_BYTES);
+            }
+            sum += (int) (lanes + (lanes >>> 16) + (lanes >>> 32) + (lanes >>> 48));
+        }
+        for (; i < length; i++)
+            sum += MEMORY.readByte(address + i);
+        return sum & 0xFF;
+    }
+
+    private static final long ZEROS = pattern('0');
+    private static final long BELOW_ZERO = below('0');
+    private static final long BELOW_TEN = below('9' + 1);
+    static final long[] TENS = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000};
+
+    /**
+     * @return the eight bytes from <code>offset</code> with the first in the lowest bits, whatever the byte order.
+     */
+    static long readWord(@NotNull RandomDataInput in, long offset) throws BufferUnderflowException {
+        long word = in.readLong(offset);
+        return LITTLE_ENDIAN ? word : Long.reverseBytes(word);
+    }
+
+    /**
+     * @return the eight bytes at <code>address</code> with the first in the lowest bits, whatever the byte order.
+     */
+    static long readWord(long address) {
+        long word = MEMORY.readLong(address);
+        return LITTLE_ENDIAN ? word : Long.reverseBytes(word);
+    }
+
+    /**
+     * @param word from {@link #readWord}
+     * @return the number of ASCII digits at the start of the word, 0 to 8
+     */
+    static int digitCount(long word) {
+        long nonDigits = lessThan(word, BELOW_ZERO) | (~lessThan(word, BELOW_TEN) & HIGH);
+        return Long.numberOfTrailingZeros(nonDigits) >>> 3;
+    }
+
+    /**
+     * Convert the first <code>count</code> digits of a word with three multiplies rather than one per digit.
+     *
+     * @param word  from {@link #readWord}
+     * @param count between 1 and {@link #digitCount}
+     * @return the value of the digits
+     */
+    static long digitsValue(long word, int count) {
+        // drop the bytes after the digits, shifting in zero digits at the front.
+        long value = (word - ZEROS) << ((8 - count) << 3);
+        // pairs of digits, then groups of four, then all eight.
+        value = value * 10 + (value >>> 8);
+        return (((value & 0x000000FF000000FFL) * (100 + (1_000_000L << 32)))
+                + (((value >>> 16) & 0x000000FF000000FFL) * (1 + (10_000L << 32)))) >>> 32;
+    }
+
+    /**
+     * Spread the low 7 bits groups of <code>value</code> into bytes, setting the stop bit of all but the last.
+     *
+     * @param value  non negative, which fits in 7 bits per byte of <code>length</code>
+     * @param length of the encoding, 1 to 8
+     * @return the stop bit encoding with the first byte in the lowest bits, whatever the byte order.
+     */
+    static long stopBitWord(long value, int length) {
+        long x = value & 0x00FFFFFFFFFFFFFFL;
+        // 28 bits in each half, then 14 bits in each quarter, then 7 bits in each byte.
+        x = (x & 0x000000000FFFFFFFL) | ((x & 0x00FFFFFFF0000000L) << 4);
+        x = (x & 0x00003FFF00003FFFL) | ((x & 0x0FFFC0000FFFC000L) << 2);
+        x = (x & 0x007F007F007F007FL) | ((x & 0x3F803F803F803F80L) << 1);
+        return x | HIGH & ((1L << ((length - 1) << 3)) - 1);
+    }
+
+    /**
+     * Write the first <code>length</code> bytes of a word from {@link #stopBitWord} and nothing after them.
+     */
+    static void writeWord(@NotNull StreamingDataOutput out, long word, int length) throws BufferOverflowException {
+        if (length == 8) {
+            out.writeLong(LITTLE_ENDIAN ? word : Long.reverseBytes(word));
+            return;
+        }
+        if (length >= 4) {
+            out.writeInt(LITTLE_ENDIAN ? (int) word : Integer.reverseBytes((int) word));
+            word >>>= 32;
+            length -= 4;
+        }
+        if (length >= 2) {
+            out.writeShort(LITTLE_ENDIAN ? (short) word : Short.reverseBytes((short) word));
+            word >>>= 16;
+            length -= 2;
+        }
+        if (length > 0)
+            out.writeByte((byte) word);
+    }
+
+    /**
+     * Write the first <code>length</code> bytes of a word from {@link #stopBitWord} to memory and nothing after them.
+     */
+    static void writeWord(long address, long word, int length) {
+        if (length == 8) {
+            MEMORY.writeLong(address, LITTLE_ENDIAN ? word : Long.reverseBytes(word));
+            return;
+        }
+        if (length >= 4) {
+            MEMORY.writeInt(address, LITTLE_ENDIAN ? (int) word : Integer.reverseBytes((int) word));
+            word >>>= 32;
+            address += 4;
+            length -= 4;
+        }
+        if (length >= 2) {
+            MEMORY.writeShort(address, LITTLE_ENDIAN ? (short) word : Short.reverseBytes((short) word));
+            word >>>= 16;
+            address += 2;
+            length -= 2;
+        }
+        if (length > 0)
+            MEMORY.writeByte(address, (byte) word);
+    }
+
+    /**
+     * Gather the 7 bit groups of the first <code>length</code> bytes of a stop bit encoding, the reverse of
+     * {@link #stopBitWord}
+     *
+     * @param word   from {@link #readWord}
+     * @param length 1 to 8
+     */
+    static long stopBitValue(long word, int length) {
+        long x = word & LOW7;
+        if (length < 8)
+            x &= (1L << (length << 3)) - 1;
+        x = (x & 0x007F007F007F007FL) | ((x & 0x7F007F007F007F00L) >>> 1);
+        x = (x & 0x00003FFF00003FFFL) | ((x & 0x3FFF00003FFF0000L) >>> 2);
+        return (x & 0x000000000FFFFFFFL) | ((x & 0x0FFFFFFF00000000L) >>> 4);
+    }
+
+    /**
+     * @param word from {@link #readWord}
+     * @return the length of the stop bit encoding at the start of the word, 1 to 8, or 9 if it is longer
+     */
+    static int stopBitLength(long word) {
+        return (Long.numberOfTrailingZeros(~word & HIGH) >>> 3) + 1;
+    }
+
+    /**
+     * @param word   from {@link #readWord}
+     * @param length from {@link #stopBitLength}, 1 to 8
+     * @return the value of the stop bit encoding at the start of the word
+     */
+    static long stopBitDecode(long word, int length) {
+        long value = stopBitValue(word, length);
+        // a negative value ends with a zero byte
+        return length > 1 && (word >>> ((length - 1) << 3) & 0xFF) == 0 ? ~value : value;
+    }
+
+    /**
+     * Check a range of an input which is read below without a bounds check, as other inputs check each read.
+     */
+    static void checkRange(@NotNull RandomDataInput in, long offset, long length) throws BufferUnderflowException {
+        if (!(in instanceof VanillaBytes || in instanceof NativeBytesStore))
+            return;
+        if (offset < in.start() || offset + length > in.readLimit())
+            throw new DecoratedBufferUnderflowException(String.format(
+                    "equalBytes failed. Offset: %d, length: %d outside %d to %d", offset, length, in.start(), in.readLimit()));
+    }
+
+    /**
+     * The bounds of a VanillaBytes are checked on every read, so once a range has been checked, read its store
+     * directly. The offsets of a VanillaBytes are the same as those of its store.
+     */
+    @NotNull
+    static RandomDataInput unchecked(@NotNull RandomDataInput in) {
+        if (in instanceof VanillaBytes) {
+            BytesStore bs = ((VanillaBytes) in).bytesStore();
+            if (bs != null)
+                return bs;
+        }
+        return in;
+    }
+}
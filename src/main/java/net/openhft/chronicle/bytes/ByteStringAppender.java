@@ -298,6 +298,19 @@ public interface ByteStringAppender<B extends ByteStringAppender<B>> extends Str
         return (B) this;
     }
 
+    /**
+     * Append a UTC timestamp in ISO-8601 format e.g. 2016-12-31T23:59:59.123Z without creating any objects.
+     *
+     * @param epochNanos nanoseconds since 1970-01-01T00:00:00Z
+     * @param precision  the number of digits of the fraction of a second, 0 to 9
+     */
+    @NotNull
+    default B appendIso8601(long epochNanos, int precision)
+            throws BufferOverflowException, IllegalArgumentException {
+        BytesInternal.appendIso8601(this, epochNanos, precision);
+        return (B) this;
+    }
+
     @NotNull
     default B append(@NotNull BigDecimal bigDecimal) {
         append(bigDecimal.toString());
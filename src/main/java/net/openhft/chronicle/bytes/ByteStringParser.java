@@ -219,6 +219,19 @@ interface ByteStringParser<B extends ByteStringParser<B>> extends StreamingDataI
         return BytesInternal.parseLongDecimal(this);
     }
 
+    /**
+     * parse an ISO-8601 timestamp e.g. 2016-12-31T23:59:59.123Z without creating any objects.
+     * The terminating character is consumed.
+     * <p>
+     * The seconds, fraction and offset are optional, and a timestamp without an offset is taken to be UTC.
+     *
+     * @return nanoseconds since 1970-01-01T00:00:00Z
+     * @throws IORuntimeException if the text is not an ISO-8601 timestamp
+     */
+    default long parseIso8601ToEpochNanos() throws IORuntimeException {
+        return BytesInternal.parseIso8601ToEpochNanos(this);
+    }
+
     /**
      * @return the last number of decimal places for parseDouble or parseLongDecimal
      */
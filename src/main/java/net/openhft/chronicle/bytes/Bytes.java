@@ -581,22 +581,15 @@ public interface Bytes<Underlying> extends
         long max = sourceOffset + (sourceCount - targetCount);
 
         for (long i = sourceOffset + fromIndex; i <= max; i++) {
-            /* Look for first character. */
-            if (source.readByte(i) != firstByte) {
-                while (++i <= max && source.readByte(i) != firstByte) ;
-            }
+            /* Look for first character, eight bytes at a time. */
+            i = ByteScanner.indexOf(source, i, max + 1, firstByte);
+            if (i < 0)
+                break;
 
             /* Found first character, now look at the rest of v2 */
-            if (i <= max) {
-                long j = i + 1;
-                long end = j + targetCount - 1;
-                for (long k = targetOffset + 1; j < end && source.readByte(j) == target.readByte(k); j++, k++) {
-                }
-
-                if (j == end) {
-                    /* Found whole string. */
-                    return Math.toIntExact(i - sourceOffset);
-                }
+            if (ByteScanner.equalBytes(source, i + 1, target, targetOffset + 1, targetCount - 1)) {
+                /* Found whole string. */
+                return Math.toIntExact(i - sourceOffset);
             }
         }
         return -1;
@@ -17,13 +17,14 @@
 package net.openhft.chronicle.bytes;
 
 import net.openhft.chronicle.bytes.pool.BytesPool;
+import net.openhft.chronicle.bytes.util.DecoratedBufferUnderflowException;
 import net.openhft.chronicle.bytes.util.StringInternerBytes;
 import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.Maths;
 import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
 import net.openhft.chronicle.core.annotation.ForceInline;
 import net.openhft.chronicle.core.io.IORuntimeException;
-import net.openhft.chronicle.core.io.UnsafeText;
 import net.openhft.chronicle.core.pool.ClassAliasPool;
 import net.openhft.chronicle.core.pool.EnumInterner;
 import net.openhft.chronicle.core.pool.StringBuilderPool;
@@ -37,6 +38,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UTFDataFormatException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.nio.BufferOverflowException;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
@@ -64,14 +67,31 @@ enum BytesInternal {
     private static final StringBuilderPool SBP = new StringBuilderPool();
     private static final BytesPool BP = new BytesPool();
     private static final StringInternerBytes SI = new StringInternerBytes(4096);
-    private static final byte[] Infinity = "Infinity".getBytes(ISO_8859_1);
-    private static final byte[] NaN = "NaN".getBytes(ISO_8859_1);
-    private static final long MAX_VALUE_DIVIDE_5 = Long.MAX_VALUE / 5;
     private static final ThreadLocal<byte[]> NUMBER_BUFFER = ThreadLocal.withInitial(() -> new byte[20]);
+    // "00" to "99", the two ASCII digits of each number below 100
+    private static final byte[] DIGIT_PAIRS = new byte[200];
+    // 10^n for each n which fits in a long
+    private static final long[] POWERS_OF_TEN = new long[19];
     private static final long MAX_VALUE_DIVIDE_10 = Long.MAX_VALUE / 10;
+    // eight more digits can be added to a value below this without going past MAX_VALUE_DIVIDE_10
+    private static final long SWAR_DOUBLE_LIMIT = MAX_VALUE_DIVIDE_10 / 100_000_000;
+    // the number of stop bit values written or read between bounds checks
+    private static final int STOP_BIT_BATCH = 64;
+    private static final long MAX_STOP_BIT_LENGTH = 10;
+    private static final long NANOS_PER_DAY = 86_400_000_000_000L;
     private static final ThreadLocal<DateCache> dateCacheTL = new ThreadLocal<>();
     private static final int MAX_STRING_LEN = Integer.getInteger("bytes.max-string-len", 128 * 1024);
 
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_PAIRS[i * 2] = (byte) ('0' + i / 10);
+            DIGIT_PAIRS[i * 2 + 1] = (byte) ('0' + i % 10);
+        }
+        long power = 1;
+        for (int i = 0; i < POWERS_OF_TEN.length; i++, power *= 10)
+            POWERS_OF_TEN[i] = power;
+    }
+
     static {
         try {
             ClassAliasPool.CLASS_ALIASES.addAlias(BytesStore.class, "!binary");
@@ -85,19 +105,7 @@ enum BytesInternal {
         if (b == null) return false;
         if (a.readRemaining() != b.readRemaining())
             return false;
-        long aPos = a.readPosition();
-        long bPos = b.readPosition();
-        long length = a.readRemaining();
-        long i;
-        for (i = 0; i < length - 7; i += 8) {
-            if (a.readLong(aPos + i) != b.readLong(bPos + i))
-                return false;
-        }
-        for (; i < length; i++) {
-            if (a.readByte(aPos + i) != b.readByte(bPos + i))
-                return false;
-        }
-        return true;
+        return ByteScanner.equalBytes(a, a.readPosition(), b, b.readPosition(), a.readRemaining());
     }
 
     static boolean startsWith(@NotNull BytesStore a, @NotNull BytesStore b) {
@@ -159,6 +167,88 @@ enum BytesInternal {
         parseUtf81(input, offset, appendable, utflen);
     }
 
+    public static boolean isValidUtf8(@NotNull RandomDataInput in, long offset, long length)
+            throws BufferUnderflowException {
+        return indexOfInvalidUtf8(in, offset, offset + length, false) < 0;
+    }
+
+    /**
+     * Check the bytes are well formed UTF-8 as defined by RFC 3629 without decoding them. Overlong encodings,
+     * surrogates, code points above U+10FFFF and truncated sequences are all malformed.
+     * Runs of ASCII are skipped a word at a time.
+     *
+     * @param surrogatePairs whether a high surrogate followed by a low surrogate, each as three bytes, is accepted.
+     *                       This is how writeUtf8 encodes a char outside the BMP, as in CESU-8.
+     * @return the offset of the first malformed sequence, or -1 if there isn't one.
+     */
+    static long indexOfInvalidUtf8(@NotNull RandomDataInput in, long from, long to, boolean surrogatePairs)
+            throws BufferUnderflowException {
+        if (from < in.start() || from > to || to > in.readLimit())
+            throw new DecoratedBufferUnderflowException(String.format(
+                    "from: %d, to: %d, start: %d, readLimit: %d", from, to, in.start(), in.readLimit()));
+        RandomDataInput bytes = ByteScanner.unchecked(in);
+        long i = from;
+        while (i < to) {
+            int b = bytes.readUnsignedByte(i);
+            if (b < 0x80) {
+                i = ByteScanner.indexOfNonAscii(in, i + 1, to);
+                continue;
+            }
+            // the number of continuation bytes, and the range of the first of them.
+            int n, lo = 0x80, hi = 0xBF;
+            if (b < 0xC2) {
+                // a continuation byte, or an overlong two byte sequence
+                return i;
+            } else if (b < 0xE0) {
+                n = 1;
+            } else if (b < 0xF0) {
+                n = 2;
+                if (b == 0xE0) {
+                    lo = 0xA0; // overlong
+                } else if (b == 0xED) {
+                    if (surrogatePairs && isSurrogatePair(bytes, i, to)) {
+                        i += 6;
+                        continue;
+                    }
+                    hi = 0x9F; // a surrogate
+                }
+            } else if (b < 0xF5) {
+                n = 3;
+                if (b == 0xF0)
+                    lo = 0x90; // overlong
+                else if (b == 0xF4)
+                    hi = 0x8F; // above U+10FFFF
+            } else {
+                return i;
+            }
+            if (to - i <= n)
+                return i;
+            int b2 = bytes.readUnsignedByte(i + 1);
+            if (b2 < lo || b2 > hi)
+                return i;
+            for (int j = 2; j <= n; j++)
+                if ((bytes.readUnsignedByte(i + j) & 0xC0) != 0x80)
+                    return i;
+            i += n + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * @return whether the six bytes at <code>i</code> are a high surrogate and a low surrogate of three bytes each.
+     */
+    private static boolean isSurrogatePair(@NotNull RandomDataInput bytes, long i, long to) {
+        if (to - i < 6)
+            return false;
+        int b2 = bytes.readUnsignedByte(i + 1);
+        int b5 = bytes.readUnsignedByte(i + 4);
+        return b2 >= 0xA0 && b2 <= 0xAF
+                && (bytes.readUnsignedByte(i + 2) & 0xC0) == 0x80
+                && bytes.readUnsignedByte(i + 3) == 0xED
+                && b5 >= 0xB0 && b5 <= 0xBF
+                && (bytes.readUnsignedByte(i + 5) & 0xC0) == 0x80;
+    }
+
     public static boolean compareUtf8(@NotNull RandomDataInput input, long offset, @Nullable CharSequence other)
             throws IORuntimeException, BufferUnderflowException, IndexOutOfBoundsException {
         long utfLen;
@@ -385,24 +475,7 @@ enum BytesInternal {
             }
             long readPosition = bytes.readPosition();
             sb.ensureCapacity(utflen);
-
-            if (Jvm.isJava9Plus()) {
-                sb.setLength(utflen);
-                while (count < utflen) {
-                    byte c = bytes.readByte(readPosition + count);
-                    if (c < 0)
-                        break;
-                    sb.setCharAt(count++, (char) c); // This is not as fast as it could be.
-                }
-            } else {
-                char[] chars = extractChars(sb);
-                while (count < utflen) {
-                    int c = bytes.readByte(readPosition + count);
-                    if (c < 0)
-                        break;
-                    chars[count++] = (char) c;
-                }
-            }
+            count = parseAscii(bytes, readPosition, sb, utflen);
             bytes.readSkip(count);
             setCount(sb, count);
             if (count < utflen) {
@@ -427,28 +500,8 @@ enum BytesInternal {
         try {
             if (offset + utflen > bytes.realCapacity())
                 throw new BufferUnderflowException();
-            long address = bytes.address + bytes.translate(offset);
-            @Nullable Memory memory = bytes.memory;
             sb.ensureCapacity(utflen);
-            int count = 0;
-
-            if (Jvm.isJava9Plus()) {
-                sb.setLength(utflen);
-                while (count < utflen) {
-                    byte c = memory.readByte(address + count);
-                    if (c < 0)
-                        break;
-                    sb.setCharAt(count++, (char) c);
-                }
-            } else {
-                char[] chars = extractChars(sb);
-                while (count < utflen) {
-                    int c = memory.readByte(address + count);
-                    if (c < 0)
-                        break;
-                    chars[count++] = (char) c;
-                }
-            }
+            int count = parseAscii(bytes, offset, sb, utflen);
             setCount(sb, count);
             if (count < utflen)
                 parseUtf82(bytes, offset + count, offset + utflen, sb, utflen);
@@ -458,6 +511,26 @@ enum BytesInternal {
         }
     }
 
+    /**
+     * Copy the leading ASCII text straight into the value of a StringBuilder with enough capacity, a word at a time.
+     *
+     * @return the number of chars copied, the caller must set the length of <code>sb</code>
+     */
+    private static int parseAscii(@NotNull RandomDataInput in, long offset, @NotNull StringBuilder sb, int utflen)
+            throws BufferUnderflowException {
+        if (!Jvm.isJava9Plus())
+            return ByteScanner.copyAscii(in, offset, utflen, extractChars(sb));
+        if (getStringCoder(sb) == JAVA9_STRING_CODER_LATIN)
+            return ByteScanner.copyAscii(in, offset, utflen, extractBytes(sb));
+
+        int ascii = (int) (ByteScanner.indexOfNonAscii(in, offset, offset + utflen) - offset);
+        in = ByteScanner.unchecked(in);
+        sb.setLength(utflen);
+        for (int i = 0; i < ascii; i++)
+            sb.setCharAt(i, (char) in.readByte(offset + i));
+        return ascii;
+    }
+
     public static int parse8bit_SB1(long offset, @NotNull NativeBytesStore nbs, @NotNull StringBuilder sb, int utflen) {
         long address = nbs.address + nbs.translate(offset);
         @Nullable Memory memory = nbs.memory;
@@ -510,6 +583,12 @@ enum BytesInternal {
                     /* 0xxxxxxx */
                     count++;
                     appendable.append((char) c);
+                    if (bytes instanceof RandomDataInput && utflen - count >= 8) {
+                        long from = bytes.readPosition();
+                        long to = appendAscii((RandomDataInput) bytes, from, Math.min(from + utflen - count, bytes.readLimit()), appendable);
+                        bytes.readSkip(to - from);
+                        count += (int) (to - from);
+                    }
                     break;
 
                 case 12:
@@ -547,9 +626,27 @@ enum BytesInternal {
                     appendable.append((char) c3);
                     break;
                 }
-                // TODO add code point of characters > 0xFFFF support.
+
+                case 15: {
+                    /* 1111 0xxx 10xx xxxx 10xx xxxx 10xx xxxx */
+                    count += 4;
+                    if (count > utflen)
+                        throw new UTFDataFormatRuntimeException(
+                                "malformed input: partial character at end");
+                    int char2 = bytes.readUnsignedByte();
+                    int char3 = bytes.readUnsignedByte();
+                    int char4 = bytes.readUnsignedByte();
+                    int cp = codePoint4(c, char2, char3, char4);
+                    if (cp < 0)
+                        throw new UTFDataFormatRuntimeException(
+                                "malformed input around byte " + (count - 3) + " was " + c + " " + char2 + " " + char3 + " " + char4);
+                    appendable.append(Character.highSurrogate(cp));
+                    appendable.append(Character.lowSurrogate(cp));
+                    break;
+                }
+
                 default:
-                    /* 10xx xxxx, 1111 xxxx */
+                    /* 10xx xxxx */
 
                     throw new UTFDataFormatRuntimeException(
                             "malformed input around byte " + count);
@@ -573,6 +670,7 @@ enum BytesInternal {
                 case 7:
                     /* 0xxxxxxx */
                     appendable.append((char) c);
+                    offset = appendAscii(input, offset, limit, appendable);
                     break;
 
                 case 12:
@@ -610,15 +708,63 @@ enum BytesInternal {
                     appendable.append((char) c3);
                     break;
                 }
-                // TODO add code point of characters > 0xFFFF support.
+
+                case 15: {
+                    /* 1111 0xxx 10xx xxxx 10xx xxxx 10xx xxxx */
+                    if (offset + 3 > limit)
+                        throw new UTFDataFormatRuntimeException(
+                                "malformed input: partial character at end");
+                    int char2 = input.readUnsignedByte(offset++);
+                    int char3 = input.readUnsignedByte(offset++);
+                    int char4 = input.readUnsignedByte(offset++);
+                    int cp = codePoint4(c, char2, char3, char4);
+                    if (cp < 0)
+                        throw new UTFDataFormatRuntimeException(
+                                "malformed input around byte " + (offset - limit + utflen - 4) +
+                                        " was " + c + " " + char2 + " " + char3 + " " + char4);
+                    appendable.append(Character.highSurrogate(cp));
+                    appendable.append(Character.lowSurrogate(cp));
+                    break;
+                }
+
                 default:
-                    /* 10xx xxxx, 1111 xxxx */
+                    /* 10xx xxxx */
                     throw new UTFDataFormatRuntimeException(
                             "malformed input around byte " + (offset - limit + utflen));
             }
         }
     }
 
+    /**
+     * @return the code point of a four byte sequence, or -1 if it is malformed, overlong or above U+10FFFF.
+     */
+    private static int codePoint4(int c, int char2, int char3, int char4) {
+        if (c > 0xF7 || ((char2 & 0xC0) != 0x80) || ((char3 & 0xC0) != 0x80) || ((char4 & 0xC0) != 0x80))
+            return -1;
+        int cp = ((c & 0x07) << 18) |
+                ((char2 & 0x3F) << 12) |
+                ((char3 & 0x3F) << 6) |
+                (char4 & 0x3F);
+        return cp < Character.MIN_SUPPLEMENTARY_CODE_POINT || cp > Character.MAX_CODE_POINT ? -1 : cp;
+    }
+
+    /**
+     * Append the ASCII text which follows an ASCII char a word at a time, so a run of it isn't decoded a byte at a time.
+     *
+     * @return the offset of the first word which isn't all ASCII, or of the last few bytes before <code>limit</code>
+     */
+    private static long appendAscii(@NotNull RandomDataInput input, long offset, long limit, @NotNull Appendable appendable)
+            throws IOException, BufferUnderflowException {
+        for (; offset <= limit - 8; offset += 8) {
+            long word = ByteScanner.readWord(input, offset);
+            if ((word & ByteScanner.HIGH) != 0)
+                break;
+            for (int j = 0; j < 8; j++, word >>>= 8)
+                appendable.append((char) (word & 0x7F));
+        }
+        return offset;
+    }
+
     public static void writeUtf8(@NotNull StreamingDataOutput bytes, @Nullable String str)
             throws BufferOverflowException {
         if (str == null) {
@@ -916,6 +1062,14 @@ enum BytesInternal {
 
     static void writeStopBit0(@NotNull StreamingDataOutput out, long n)
             throws BufferOverflowException {
+        // assemble up to 8 bytes in a register and write just those bytes, leaving any after them unchanged.
+        long value = n < 0 ? ~n : n;
+        int groups = Math.max(1, (70 - Long.numberOfLeadingZeros(value)) / 7);
+        int length = n < 0 ? groups + 1 : groups;
+        if (length <= 8) {
+            ByteScanner.writeWord(out, ByteScanner.stopBitWord(value, length), length);
+            return;
+        }
         boolean neg = false;
         if (n < 0) {
             neg = true;
@@ -972,6 +1126,185 @@ enum BytesInternal {
         return len + 1;
     }
 
+    /**
+     * Write values[from] to values[to - 1] stop bit encoded, the same as writing each with writeStopBit.
+     * For direct Bytes the bounds are checked once per batch of values, which is then written straight to memory.
+     *
+     * @param zigZag encode small negative values in one byte
+     * @param delta  encode the zig zag difference from the previous value, starting from 0
+     */
+    public static void writeStopBitArray(@NotNull StreamingDataOutput out, @NotNull long[] values, int from, int to,
+                                         boolean zigZag, boolean delta)
+            throws BufferOverflowException, IndexOutOfBoundsException {
+        checkFromTo(values.length, from, to);
+        long previous = 0;
+        for (int i = from; i < to; ) {
+            int end = Math.min(to, i + STOP_BIT_BATCH);
+            long address = addressForBatchWrite(out, (end - i) * MAX_STOP_BIT_LENGTH);
+            long start = address;
+            for (; i < end; i++) {
+                long n = values[i];
+                if (delta) {
+                    long d = n - previous;
+                    previous = n;
+                    n = d;
+                }
+                if (zigZag || delta)
+                    n = (n << 1) ^ (n >> 63);
+                if (address == 0)
+                    out.writeStopBit(n);
+                else
+                    address += writeStopBitAt(address, n);
+            }
+            if (start != 0)
+                ((VanillaBytes) out).uncheckedWritePosition(out.writePosition() + address - start);
+        }
+    }
+
+    public static void writeStopBitArray(@NotNull StreamingDataOutput out, @NotNull int[] values, int from, int to)
+            throws BufferOverflowException, IndexOutOfBoundsException {
+        checkFromTo(values.length, from, to);
+        for (int i = from; i < to; ) {
+            int end = Math.min(to, i + STOP_BIT_BATCH);
+            long address = addressForBatchWrite(out, (end - i) * MAX_STOP_BIT_LENGTH);
+            long start = address;
+            for (; i < end; i++) {
+                if (address == 0)
+                    out.writeStopBit((long) values[i]);
+                else
+                    address += writeStopBitAt(address, values[i]);
+            }
+            if (start != 0)
+                ((VanillaBytes) out).uncheckedWritePosition(out.writePosition() + address - start);
+        }
+    }
+
+    /**
+     * Read values written by {@link #writeStopBitArray(StreamingDataOutput, long[], int, int, boolean, boolean)}
+     * with the same options.
+     */
+    public static void readStopBitArray(@NotNull StreamingDataInput in, @NotNull long[] values, int from, int to,
+                                        boolean zigZag, boolean delta)
+            throws IORuntimeException, IndexOutOfBoundsException {
+        checkFromTo(values.length, from, to);
+        long previous = 0;
+        for (int i = from; i < to; ) {
+            int end = Math.min(to, i + STOP_BIT_BATCH);
+            long position = in.readPosition();
+            long address = addressForBatchRead(in, (end - i) * MAX_STOP_BIT_LENGTH);
+            long start = address;
+            for (; i < end; i++) {
+                long n;
+                long word;
+                int length;
+                if (address == 0) {
+                    n = in.readStopBit();
+                } else if ((length = ByteScanner.stopBitLength(word = ByteScanner.readWord(address))) <= 8) {
+                    n = ByteScanner.stopBitDecode(word, length);
+                    address += length;
+                } else {
+                    in.readPosition(position + address - start);
+                    n = in.readStopBit();
+                    address = start + in.readPosition() - position;
+                }
+                if (zigZag || delta)
+                    n = (n >>> 1) ^ -(n & 1);
+                if (delta)
+                    n = previous += n;
+                values[i] = n;
+            }
+            if (start != 0)
+                in.readPosition(position + address - start);
+        }
+    }
+
+    public static void readStopBitArray(@NotNull StreamingDataInput in, @NotNull int[] values, int from, int to)
+            throws IORuntimeException, IndexOutOfBoundsException {
+        checkFromTo(values.length, from, to);
+        for (int i = from; i < to; ) {
+            int end = Math.min(to, i + STOP_BIT_BATCH);
+            long position = in.readPosition();
+            long address = addressForBatchRead(in, (end - i) * MAX_STOP_BIT_LENGTH);
+            long start = address;
+            for (; i < end; i++) {
+                long word;
+                int length;
+                if (address == 0) {
+                    values[i] = Maths.toInt32(in.readStopBit());
+                } else if ((length = ByteScanner.stopBitLength(word = ByteScanner.readWord(address))) <= 8) {
+                    values[i] = Maths.toInt32(ByteScanner.stopBitDecode(word, length));
+                    address += length;
+                } else {
+                    in.readPosition(position + address - start);
+                    values[i] = Maths.toInt32(in.readStopBit());
+                    address = start + in.readPosition() - position;
+                }
+            }
+            if (start != 0)
+                in.readPosition(position + address - start);
+        }
+    }
+
+    private static void checkFromTo(int length, int from, int to) throws IndexOutOfBoundsException {
+        if (from < 0 || from > to || to > length)
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + length);
+    }
+
+    /**
+     * @return the address to write up to <code>length</code> bytes from the writePosition() of <code>out</code>
+     * without further checks, or 0 if it has to be written through <code>out</code>
+     */
+    private static long addressForBatchWrite(@NotNull StreamingDataOutput out, long length)
+            throws BufferOverflowException {
+        // guarded Bytes mark each value, so they are written one at a time.
+        if (!(out instanceof VanillaBytes) || out instanceof GuardedNativeBytes)
+            return 0;
+        VanillaBytes bytes = (VanillaBytes) out;
+        long position = bytes.writePosition();
+        if (!bytes.isDirectMemory() || bytes.writeLimit() - position < length)
+            return 0;
+        // may resize an elastic buffer, so the store is only used after this.
+        bytes.writeCheckOffset(position, length);
+        return bytes.bytesStore().addressForWrite(position);
+    }
+
+    /**
+     * @return the address of up to <code>length</code> bytes from the readPosition() of <code>in</code>, or 0 if
+     * they have to be read through <code>in</code>
+     */
+    private static long addressForBatchRead(@NotNull StreamingDataInput in, long length)
+            throws BufferUnderflowException {
+        if (!(in instanceof VanillaBytes) || in instanceof GuardedNativeBytes || in.readRemaining() < length)
+            return 0;
+        long position = in.readPosition();
+        return ByteScanner.address((VanillaBytes) in, position, position + length);
+    }
+
+    /**
+     * Write a stop bit encoded value to memory with room for its longest encoding.
+     *
+     * @return the number of bytes used
+     */
+    private static int writeStopBitAt(long address, long n) {
+        long value = n < 0 ? ~n : n;
+        int groups = Math.max(1, (70 - Long.numberOfLeadingZeros(value)) / 7);
+        int length = n < 0 ? groups + 1 : groups;
+        if (length <= 8) {
+            ByteScanner.writeWord(address, ByteScanner.stopBitWord(value, length), length);
+            return length;
+        }
+        Memory memory = OS.memory();
+        for (int i = 0; i < groups - 1; i++, value >>>= 7)
+            memory.writeByte(address + i, (byte) (0x80L | value));
+        if (n < 0) {
+            memory.writeByte(address + groups - 1, (byte) (0x80L | value));
+            memory.writeByte(address + groups, (byte) 0);
+        } else {
+            memory.writeByte(address + groups - 1, (byte) value);
+        }
+        return length;
+    }
+
     public static String toDebugString(@NotNull RandomDataInput bytes, long maxLength) {
         if (bytes.refCount() < 1)
             // added because something is crashing the JVM
@@ -1019,6 +1352,29 @@ enum BytesInternal {
         return size == Bytes.MAX_CAPACITY ? "8EiB" : size;
     }
 
+    /**
+     * Create a String from <code>length</code> 8-bit bytes. On Java 9+ the bytes are copied once into a byte[]
+     * which becomes a compact Latin-1 String, rather than being widened into a char[] twice the size first.
+     */
+    @NotNull
+    public static String to8bitString(@NotNull RandomDataInput in, long offset, int length)
+            throws BufferUnderflowException {
+        if (offset < in.start() || length < 0 || offset + length > in.readLimit())
+            throw new DecoratedBufferUnderflowException(String.format(
+                    "offset: %d, length: %d, start: %d, readLimit: %d", offset, length, in.start(), in.readLimit()));
+        if (!Jvm.isJava9Plus()) {
+            // the char[] becomes the value of the String.
+            char[] chars = new char[length];
+            RandomDataInput bytes = ByteScanner.unchecked(in);
+            for (int i = 0; i < length; i++)
+                chars[i] = (char) bytes.readUnsignedByte(offset + i);
+            return StringUtils.newString(chars);
+        }
+        byte[] bytes = new byte[length];
+        ByteScanner.unchecked(in).read(offset, bytes, 0, length);
+        return new String(bytes, 0, length, ISO_8859_1);
+    }
+
     public static String to8bitString(@NotNull BytesStore bytes)
             throws IllegalArgumentException {
         long pos = bytes.readPosition();
@@ -1137,6 +1493,18 @@ enum BytesInternal {
     static long readStopBit0(@NotNull StreamingDataInput in, long l)
             throws IORuntimeException {
         l &= 0x7FL;
+        if (in instanceof RandomDataInput && in.readRemaining() >= 8) {
+            // the first byte without a stop bit in the next eight ends the value.
+            long position = in.readPosition();
+            long word = ByteScanner.readWord(ByteScanner.unchecked((RandomDataInput) in), position);
+            int length = ByteScanner.stopBitLength(word);
+            if (length <= 8) {
+                in.readSkip(length);
+                long value = l | ByteScanner.stopBitValue(word, length) << 7;
+                // a negative value ends with a zero byte
+                return (word >>> ((length - 1) << 3) & 0xFF) == 0 ? ~value : value;
+            }
+        }
         long b;
         int count = 7;
         while ((b = in.rawReadByte()) < 0) {
@@ -1197,13 +1565,57 @@ enum BytesInternal {
             throws IllegalArgumentException, BufferOverflowException {
         if (out.canWriteDirect(20)) {
             long address = out.addressForWrite(out.writePosition());
-            long address2 = UnsafeText.appendFixed(address, num);
+            long address2 = appendBase10(address, num);
             out.writeSkip(address2 - address);
         } else {
             appendLong0(out, num);
         }
     }
 
+    /**
+     * @return the number of decimal digits in a number which isn't negative
+     */
+    static int digitCount(long num) {
+        // an estimate from the number of bits, which is at most one too low.
+        int estimate = (64 - Long.numberOfLeadingZeros(num | 1)) * 1233 >>> 12;
+        return estimate + ((num | 1) >= POWERS_OF_TEN[estimate] ? 1 : 0);
+    }
+
+    /**
+     * Write a number in decimal to memory. As the length is known up front the digits are written from the end,
+     * two at a time.
+     *
+     * @return the address after the last digit
+     */
+    static long appendBase10(long address, long num) {
+        Memory memory = OS.memory();
+        if (num < 0) {
+            if (num == Long.MIN_VALUE) {
+                for (byte b : MIN_VALUE_TEXT)
+                    memory.writeByte(address++, b);
+                return address;
+            }
+            memory.writeByte(address++, (byte) '-');
+            num = -num;
+        }
+        long end = address + digitCount(num);
+        long position = end;
+        for (; num >= 100; num /= 100) {
+            int pair = (int) (num % 100) << 1;
+            position -= 2;
+            memory.writeByte(position, DIGIT_PAIRS[pair]);
+            memory.writeByte(position + 1, DIGIT_PAIRS[pair + 1]);
+        }
+        if (num >= 10) {
+            int pair = (int) num << 1;
+            memory.writeByte(address, DIGIT_PAIRS[pair]);
+            memory.writeByte(address + 1, DIGIT_PAIRS[pair + 1]);
+        } else {
+            memory.writeByte(address, (byte) ('0' + num));
+        }
+        return end;
+    }
+
     public static void appendBase16(@NotNull ByteStringAppender out, long num, int minDigits)
             throws IllegalArgumentException, BufferOverflowException {
         byte[] numberBuffer = NUMBER_BUFFER.get();
@@ -1402,285 +1814,45 @@ enum BytesInternal {
     }
 
     private static int appendInt1(byte[] numberBuffer, int num) {
-        numberBuffer[19] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 19;
-        numberBuffer[18] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 18;
-        numberBuffer[17] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 17;
-        numberBuffer[16] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 16;
-        numberBuffer[15] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 15;
-        numberBuffer[14] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 14;
-        numberBuffer[13] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 13;
-        numberBuffer[12] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 12;
-        numberBuffer[11] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 11;
-        numberBuffer[10] = (byte) (num % 10L + '0');
-        return 10;
+        int index = numberBuffer.length;
+        for (; num >= 100; num /= 100) {
+            int pair = num % 100 << 1;
+            numberBuffer[--index] = DIGIT_PAIRS[pair + 1];
+            numberBuffer[--index] = DIGIT_PAIRS[pair];
+        }
+        return appendLastDigits(numberBuffer, index, num);
     }
 
     private static int appendLong1(byte[] numberBuffer, long num) {
-        numberBuffer[19] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 19;
-        numberBuffer[18] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 18;
-        numberBuffer[17] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 17;
-        numberBuffer[16] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 16;
-        numberBuffer[15] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 15;
-        numberBuffer[14] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 14;
-        numberBuffer[13] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 13;
-        numberBuffer[12] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 12;
-        numberBuffer[11] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 11;
-        numberBuffer[10] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 10;
-        numberBuffer[9] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 9;
-        numberBuffer[8] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 8;
-        numberBuffer[7] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 7;
-        numberBuffer[6] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 6;
-        numberBuffer[5] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 5;
-        numberBuffer[4] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 4;
-        numberBuffer[3] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 3;
-        numberBuffer[2] = (byte) (num % 10L + '0');
-        num /= 10;
-        if (num <= 0)
-            return 2;
-        numberBuffer[1] = (byte) (num % 10L + '0');
-        return 1;
+        int index = numberBuffer.length;
+        for (; num > Integer.MAX_VALUE; num /= 100) {
+            int pair = (int) (num % 100) << 1;
+            numberBuffer[--index] = DIGIT_PAIRS[pair + 1];
+            numberBuffer[--index] = DIGIT_PAIRS[pair];
+        }
+        // the rest fits in an int, which is cheaper to divide
+        int rest = (int) num;
+        for (; rest >= 100; rest /= 100) {
+            int pair = rest % 100 << 1;
+            numberBuffer[--index] = DIGIT_PAIRS[pair + 1];
+            numberBuffer[--index] = DIGIT_PAIRS[pair];
+        }
+        return appendLastDigits(numberBuffer, index, rest);
+    }
+
+    private static int appendLastDigits(byte[] numberBuffer, int index, int num) {
+        if (num >= 10) {
+            numberBuffer[--index] = DIGIT_PAIRS[(num << 1) + 1];
+            numberBuffer[--index] = DIGIT_PAIRS[num << 1];
+        } else {
+            numberBuffer[--index] = (byte) ('0' + num);
+        }
+        return index;
     }
 
     public static void append(@NotNull StreamingDataOutput out, double d)
             throws BufferOverflowException, IllegalArgumentException {
-        long val = Double.doubleToRawLongBits(d);
-        int sign = (int) (val >>> 63);
-        int exp = (int) ((val >>> 52) & 2047);
-        long mantissa = val & ((1L << 52) - 1);
-        if (sign != 0) {
-            out.rawWriteByte((byte) '-');
-        }
-        if (exp == 0 && mantissa == 0) {
-            out.rawWriteByte((byte) '0');
-            out.rawWriteByte((byte) '.');
-            out.rawWriteByte((byte) '0');
-            return;
-
-        } else if (exp == 2047) {
-            if (mantissa == 0) {
-                out.write(Infinity);
-
-            } else {
-                out.write(NaN);
-            }
-            return;
-
-        } else if (exp > 0) {
-            mantissa += 1L << 52;
-        }
-        final int shift = (1023 + 52) - exp;
-        if (shift > 0) {
-            // integer and faction
-            if (shift < 53) {
-                long intValue = mantissa >> shift;
-                appendLong0(out, intValue);
-                mantissa -= intValue << shift;
-                if (mantissa > 0) {
-                    out.rawWriteByte((byte) '.');
-                    mantissa <<= 1;
-                    mantissa++;
-                    int precision = shift + 1;
-                    long error = 1;
-
-                    long value = intValue;
-                    int decimalPlaces = 0;
-                    while (mantissa > error) {
-                        // times 5*2 = 10
-                        mantissa *= 5;
-                        error *= 5;
-                        precision--;
-                        long num = (mantissa >> precision);
-                        value = value * 10 + num;
-                        out.rawWriteByte((byte) ('0' + num));
-                        mantissa -= num << precision;
-
-                        final double parsedValue = asDouble(value, 0, sign != 0, ++decimalPlaces);
-                        if (parsedValue == d)
-                            break;
-                    }
-                } else {
-                    out.rawWriteByte((byte) '.');
-                    out.rawWriteByte((byte) '0');
-                }
-                return;
-
-            } else {
-                // faction.
-                out.rawWriteByte((byte) '0');
-                out.rawWriteByte((byte) '.');
-                mantissa <<= 6;
-                mantissa += (1 << 5);
-                int precision = shift + 6;
-
-                long error = (1 << 5);
-
-                long value = 0;
-                int decimalPlaces = 0;
-                while (mantissa > error) {
-                    while (mantissa > MAX_VALUE_DIVIDE_5) {
-                        mantissa >>>= 1;
-                        error = (error + 1) >>> 1;
-                        precision--;
-                    }
-                    // times 5*2 = 10
-                    mantissa *= 5;
-                    error *= 5;
-                    precision--;
-                    if (precision >= 64) {
-                        decimalPlaces++;
-                        out.rawWriteByte((byte) '0');
-                        continue;
-                    }
-                    long num = (mantissa >>> precision);
-                    value = value * 10 + num;
-                    final char c = (char) ('0' + num);
-                    assert !(c < '0' || c > '9');
-                    out.rawWriteByte((byte) c);
-                    mantissa -= num << precision;
-                    final double parsedValue = asDouble(value, 0, sign != 0, ++decimalPlaces);
-                    if (parsedValue == d)
-                        break;
-                }
-                return;
-            }
-        }
-        // large number
-        mantissa <<= 10;
-        int precision = -10 - shift;
-        int digits = 0;
-        while ((precision > 53 || mantissa > Long.MAX_VALUE >> precision) && precision > 0) {
-            digits++;
-            precision--;
-            long mod = mantissa % 5;
-            mantissa /= 5;
-            int modDiv = 1;
-            while (mantissa < MAX_VALUE_DIVIDE_5 && precision > 1) {
-                precision -= 1;
-                mantissa <<= 1;
-                modDiv <<= 1;
-            }
-            mantissa += modDiv * mod / 5;
-        }
-        long val2 = precision > 0 ? mantissa << precision : mantissa >>> -precision;
-
-        appendLong0(out, val2);
-        for (int i = 0; i < digits; i++)
-            out.rawWriteByte((byte) '0');
-    }
-
-    private static double asDouble(long value, int exp, boolean negative, int deci) {
-        // these numbers were determined empirically.
-        int leading =
-                Long.numberOfLeadingZeros(value) - 1;
-        if (leading > 9)
-            leading = (27 + leading) >>> 2;
-
-        int scale2 = 0;
-        if (leading > 0) {
-            scale2 = leading;
-            value <<= scale2;
-        }
-        double d;
-        if (deci > 0) {
-            if (deci <= 29) {
-                long fives = Maths.fives(deci);
-                long whole = value / fives;
-                long rem = value % fives;
-                d = whole + (double) rem / fives;
-            } else {
-                d = value / Math.pow(5, -deci);
-            }
-        } else if (deci < -29) {
-            d = value * Math.pow(5, -deci);
-
-        } else if (deci < 0) {
-            double fives = Maths.fives(-deci);
-            d = value * fives;
-
-        } else {
-            d = value;
-        }
-
-        double scalb = Math.scalb(d, exp - deci - scale2);
-        return negative ? -scalb : scalb;
+        DoubleFormatter.append(out, d);
     }
 
     @Nullable
@@ -1691,6 +1863,33 @@ enum BytesInternal {
         return in.readUtf8(sb) ? SI.intern(sb) : null;
     }
 
+    public static <ACS extends Appendable & CharSequence> boolean readUtf8Strict(
+            @NotNull StreamingDataInput in, @NotNull ACS sb)
+            throws IORuntimeException, IllegalArgumentException, BufferUnderflowException {
+        AppendableUtil.setLength(sb, 0);
+        if (in.readRemaining() <= 0)
+            return false;
+        long position = in.readPosition();
+        long len0 = in.readStopBit();
+        if (len0 == -1)
+            return false;
+        int len = Maths.toUInt31(len0);
+        long start = in.readPosition();
+        if (len > in.readRemaining()) {
+            in.readPosition(position);
+            throw new BufferUnderflowException();
+        }
+        // accept the surrogate pairs writeUtf8 writes for chars outside the BMP.
+        long invalid = indexOfInvalidUtf8((RandomDataInput) in, start, start + len, true);
+        if (invalid >= 0) {
+            in.readPosition(position);
+            throw new UTFDataFormatRuntimeException("malformed input around byte " + (invalid - start));
+        }
+        if (len > 0)
+            parseUtf8(in, sb, len);
+        return true;
+    }
+
     @Nullable
     @ForceInline
     public static String readUtf8(@NotNull RandomDataInput in, long offset, int maxUtf8Len)
@@ -1757,6 +1956,23 @@ enum BytesInternal {
         long address = nb.address + nb.translate(bytes.readPosition());
         @Nullable Memory memory = nb.memory;
 
+        if (ByteScanner.canScan(tester)) {
+            // find the end of the ASCII text before the stop char a word at a time, then copy it.
+            long start = bytes.readPosition();
+            int ascii = (int) (ByteScanner.indexOfStop(bytes, start, start + len, tester, true) - start);
+            appendable.ensureCapacity(ascii);
+            for (; i < ascii; i++)
+                appendable.append((char) memory.readByte(address + i));
+            if (i < len && memory.readByte(address + i) >= 0) {
+                bytes.readSkip(i + 1);
+                return;
+            }
+            bytes.readSkip(i);
+            if (i < len)
+                readUtf8_SB2(bytes, appendable, tester);
+            return;
+        }
+
         if (Jvm.isJava9Plus()) {
             int appendableLength = appendable.capacity();
             for (; i < len && i < appendableLength; i++) {
@@ -1969,6 +2185,18 @@ enum BytesInternal {
     }
 
     private static void read8bitAndAppend(@NotNull StreamingDataInput bytes, @NotNull StringBuilder appendable, @NotNull StopCharTester tester) {
+        if (canScan(bytes, tester)) {
+            @NotNull RandomDataInput in = (RandomDataInput) bytes;
+            long start = bytes.readPosition();
+            long limit = bytes.readLimit();
+            long end = ByteScanner.indexOfStop(in, start, limit, tester, false);
+            appendable.ensureCapacity(appendable.length() + (int) (end - start));
+            for (long i = start; i < end; i++)
+                appendable.append((char) in.readUnsignedByte(i));
+            // skip the stop char if there is one.
+            bytes.readPosition(end < limit ? end + 1 : end);
+            return;
+        }
         while (true) {
             int c = bytes.readUnsignedByte();
             if (tester.isStopChar(c))
@@ -1981,6 +2209,15 @@ enum BytesInternal {
 
     private static void read8bitAndAppend(@NotNull StreamingDataInput bytes, @NotNull Bytes bytes2, @NotNull StopCharTester tester)
             throws BufferUnderflowException, BufferOverflowException {
+        if (canScan(bytes, tester)) {
+            @NotNull RandomDataInput in = (RandomDataInput) bytes;
+            long start = bytes.readPosition();
+            long limit = bytes.readLimit();
+            long end = ByteScanner.indexOfStop(in, start, limit, tester, false);
+            bytes2.write(in, start, end - start);
+            bytes.readPosition(end < limit ? end + 1 : end);
+            return;
+        }
         try {
             while (true) {
                 int c = bytes.readUnsignedByte();
@@ -1995,6 +2232,13 @@ enum BytesInternal {
         }
     }
 
+    /**
+     * @return whether the bytes up to the stop char can be found a word at a time.
+     */
+    private static boolean canScan(@NotNull StreamingDataInput bytes, @NotNull StopCharTester tester) {
+        return bytes instanceof RandomDataInput && bytes.readRemaining() > 0 && ByteScanner.canScan(tester);
+    }
+
     private static void read8bitAndAppend(@NotNull StreamingDataInput bytes, @NotNull Bytes bytes2, @NotNull StopCharsTester tester)
             throws BufferUnderflowException, BufferOverflowException {
         try {
@@ -2022,13 +2266,16 @@ enum BytesInternal {
     public static double parseDouble(@NotNull StreamingDataInput in)
             throws BufferUnderflowException {
         long value = 0;
-        int exp = 0;
+        // digits which didn't fit in value, and whether any of them weren't zero.
+        int dropped = 0;
+        boolean truncated = false;
         boolean negative = false;
         int decimalPlaces = Integer.MIN_VALUE;
         int ch;
         do {
             ch = in.rawReadByte() & 0xFF;
         } while (ch == ' ');
+        long start = in.readPosition() - 1;
 
         try {
             switch (ch) {
@@ -2052,38 +2299,90 @@ enum BytesInternal {
                     break;
             }
             int tens = 0;
+            long end;
             while (true) {
                 if (ch >= '0' && ch <= '9') {
-                    while (value >= MAX_VALUE_DIVIDE_10) {
-                        value >>>= 1;
-                        exp++;
+                    if (value < MAX_VALUE_DIVIDE_10) {
+                        value = value * 10 + (ch - '0');
+                    } else {
+                        dropped++;
+                        truncated |= ch != '0';
                     }
-                    value = value * 10 + (ch - '0');
                     decimalPlaces++;
+                    if (value < SWAR_DOUBLE_LIMIT) {
+                        // small enough to add the next eight digits without checking each one.
+                        long word = digitWord(in);
+                        int digits = ByteScanner.digitCount(word);
+                        if (digits > 0) {
+                            value = value * ByteScanner.TENS[digits] + ByteScanner.digitsValue(word, digits);
+                            decimalPlaces += digits;
+                            in.readSkip(digits);
+                        }
+                    }
 
                 } else if (ch == '.') {
                     decimalPlaces = 0;
 
                 } else if (ch == 'E' || ch == 'e') {
-                    tens = (int) parseLong(in);
+                    end = in.readPosition() - 1;
+                    if (in.peekUnsignedByte() == '+')
+                        in.readSkip(1);
+                    tens = (int) Math.max(-100_000, Math.min(100_000, parseLong(in)));
                     break;
 
                 } else {
+                    end = in.readPosition() - 1;
                     break;
                 }
-                if (in.readRemaining() == 0)
+                if (in.readRemaining() == 0) {
+                    end = in.readPosition();
                     break;
+                }
                 ch = in.rawReadByte();
             }
             if (decimalPlaces < 0)
                 decimalPlaces = 0;
 
-            return asDouble(value, exp, negative, decimalPlaces - tens);
+            int exp10 = dropped - decimalPlaces + tens;
+            double d = DoubleParser.toDouble(negative, value, exp10);
+            // the digits dropped could round either way unless value + 1 gives the same double.
+            if (Double.isNaN(d) || (truncated && d != DoubleParser.toDouble(negative, value + 1, exp10)))
+                d = parseDoubleExactly(in, start, end, negative, tens - decimalPlaces);
+            return d;
         } finally {
             ((ByteStringParser) in).lastDecimalPlaces(decimalPlaces);
         }
     }
 
+    /**
+     * Read all the digits between <code>start</code> and <code>end</code> again, for the rare number which
+     * can't be rounded correctly from the first nineteen digits.
+     */
+    private static double parseDoubleExactly(@NotNull StreamingDataInput in, long start, long end, boolean negative, int exp10)
+            throws BufferUnderflowException {
+        long position = in.readPosition();
+        StringBuilder digits = new StringBuilder((int) (end - start));
+        in.readPosition(start);
+        while (in.readPosition() < end) {
+            int ch = in.readUnsignedByte();
+            if (ch >= '0' && ch <= '9')
+                digits.append((char) ch);
+        }
+        in.readPosition(position);
+        double d = new BigDecimal(new BigInteger(digits.toString()), -exp10).doubleValue();
+        return negative ? -d : d;
+    }
+
+    /**
+     * @return the next eight bytes as a word for {@link ByteScanner#digitCount}, or 0 if there aren't eight
+     * bytes which can be read that way.
+     */
+    private static long digitWord(@NotNull StreamingDataInput in) throws BufferUnderflowException {
+        if (in.readRemaining() < 8 || !(in instanceof RandomDataInput))
+            return 0;
+        return ByteScanner.readWord(ByteScanner.unchecked((RandomDataInput) in), in.readPosition());
+    }
+
     static boolean compareRest(@NotNull StreamingDataInput in, @NotNull String s)
             throws BufferUnderflowException {
         if (s.length() > in.readRemaining())
@@ -2120,6 +2419,14 @@ enum BytesInternal {
             }
         }
         while (in.readRemaining() > 0) {
+            long word = digitWord(in);
+            int digits = ByteScanner.digitCount(word);
+            if (digits > 0) {
+                num = num * ByteScanner.TENS[digits] + ByteScanner.digitsValue(word, digits);
+                in.readSkip(digits);
+                if (digits == 8)
+                    continue;
+            }
             b = in.rawReadByte();
             // if (b >= '0' && b <= '9')
             if ((b - ('0' + Integer.MIN_VALUE)) <= 9 + Integer.MIN_VALUE) {
@@ -2186,6 +2493,15 @@ enum BytesInternal {
         boolean negative = false;
         int decimalPlaces = Integer.MIN_VALUE;
         while (in.readRemaining() > 0) {
+            long word = digitWord(in);
+            int digits = ByteScanner.digitCount(word);
+            if (digits > 0) {
+                num = num * ByteScanner.TENS[digits] + ByteScanner.digitsValue(word, digits);
+                in.readSkip(digits);
+                decimalPlaces += digits;
+                if (digits == 8)
+                    continue;
+            }
             int b = in.readUnsignedByte();
             // if (b >= '0' && b <= '9')
             if ((b - ('0' + Integer.MIN_VALUE)) <= 9 + Integer.MIN_VALUE) {
@@ -2238,6 +2554,16 @@ enum BytesInternal {
         long num = 0;
         boolean negative = false;
         while (true) {
+            if (in.readLimit() - offset >= 8) {
+                long word = ByteScanner.readWord(in, offset);
+                int digits = ByteScanner.digitCount(word);
+                if (digits > 0) {
+                    num = num * ByteScanner.TENS[digits] + ByteScanner.digitsValue(word, digits);
+                    offset += digits;
+                    if (digits == 8)
+                        continue;
+                }
+            }
             int b = in.peekUnsignedByte(offset++);
             // if (b >= '0' && b <= '9')
             if ((b - ('0' + Integer.MIN_VALUE)) <= 9 + Integer.MIN_VALUE)
@@ -2449,12 +2775,18 @@ enum BytesInternal {
         return true;
     }
 
-    public static void appendDateMillis(@NotNull ByteStringAppender b, long timeInMS)
-            throws BufferOverflowException {
+    @NotNull
+    private static DateCache dateCache() {
         DateCache dateCache = dateCacheTL.get();
         if (dateCache == null) {
             dateCacheTL.set(dateCache = new DateCache());
         }
+        return dateCache;
+    }
+
+    public static void appendDateMillis(@NotNull ByteStringAppender b, long timeInMS)
+            throws BufferOverflowException {
+        DateCache dateCache = dateCache();
         long date = timeInMS / 86400000;
         if (dateCache.lastDay != date) {
             dateCache.lastDateStr = dateCache.dateFormat.format(new Date(timeInMS)).getBytes(ISO_8859_1);
@@ -2466,6 +2798,201 @@ enum BytesInternal {
         b.write(dateCache.lastDateStr);
     }
 
+    /**
+     * Append a UTC timestamp as yyyy-MM-ddTHH:mm:ss[.fraction]Z without creating any objects.
+     * The date is cached per thread so only the time of day is formatted for each timestamp on the same day.
+     *
+     * @param epochNanos nanoseconds since 1970-01-01T00:00:00Z
+     * @param precision  the number of digits of the fraction of a second, 0 to 9
+     */
+    public static void appendIso8601(@NotNull ByteStringAppender b, long epochNanos, int precision)
+            throws BufferOverflowException, IllegalArgumentException {
+        if (precision < 0 || precision > 9)
+            throw new IllegalArgumentException("precision: " + precision);
+        long day = Math.floorDiv(epochNanos, NANOS_PER_DAY);
+        long nanosOfDay = epochNanos - day * NANOS_PER_DAY;
+        DateCache dateCache = dateCache();
+        if (dateCache.lastIsoDay != day) {
+            isoDate(dateCache.isoDate, day);
+            dateCache.lastIsoDay = day;
+        }
+        b.write(dateCache.isoDate);
+
+        int secondOfDay = (int) (nanosOfDay / 1_000_000_000);
+        appendDigitPair(b, secondOfDay / 3600);
+        b.rawWriteByte((byte) ':');
+        appendDigitPair(b, secondOfDay / 60 % 60);
+        b.rawWriteByte((byte) ':');
+        appendDigitPair(b, secondOfDay % 60);
+        if (precision > 0) {
+            b.rawWriteByte((byte) '.');
+            int fraction = (int) (nanosOfDay % 1_000_000_000 / POWERS_OF_TEN[9 - precision]);
+            int digits = precision;
+            for (; digits >= 2; digits -= 2)
+                appendDigitPair(b, (int) (fraction / POWERS_OF_TEN[digits - 2] % 100));
+            if (digits > 0)
+                b.rawWriteByte((byte) ('0' + fraction % 10));
+        }
+        b.rawWriteByte((byte) 'Z');
+    }
+
+    private static void appendDigitPair(@NotNull ByteStringAppender b, int num)
+            throws BufferOverflowException {
+        b.rawWriteByte(DIGIT_PAIRS[num << 1]);
+        b.rawWriteByte(DIGIT_PAIRS[(num << 1) + 1]);
+    }
+
+    /**
+     * Write yyyy-MM-ddT for a day since the epoch. The civil calendar arithmetic is from
+     * http://howardhinnant.github.io/date_algorithms.html
+     */
+    static void isoDate(@NotNull byte[] date, long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        int doe = (int) (z - era * 146097);
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int dayOfMonth = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = (int) (era * 400 + yoe) + (month <= 2 ? 1 : 0);
+        int century = year / 100 << 1, rest = year % 100 << 1;
+        date[0] = DIGIT_PAIRS[century];
+        date[1] = DIGIT_PAIRS[century + 1];
+        date[2] = DIGIT_PAIRS[rest];
+        date[3] = DIGIT_PAIRS[rest + 1];
+        date[4] = '-';
+        date[5] = DIGIT_PAIRS[month << 1];
+        date[6] = DIGIT_PAIRS[(month << 1) + 1];
+        date[7] = '-';
+        date[8] = DIGIT_PAIRS[dayOfMonth << 1];
+        date[9] = DIGIT_PAIRS[(dayOfMonth << 1) + 1];
+        date[10] = 'T';
+    }
+
+    static long epochDay(int year, int month, int dayOfMonth) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        int yoe = (int) (y - era * 400);
+        int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + dayOfMonth - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * Parse an ISO-8601 timestamp of the form yyyy-MM-ddTHH:mm[:ss[.fraction]][Z|+hh:mm|-hh:mm] without
+     * creating any objects. A space may be used instead of the T, digits of the fraction past nanoseconds
+     * are ignored and a timestamp without an offset is taken to be UTC. The terminating character is consumed.
+     *
+     * @return nanoseconds since 1970-01-01T00:00:00Z
+     * @throws IORuntimeException if the text is not an ISO-8601 timestamp
+     */
+    public static long parseIso8601ToEpochNanos(@NotNull StreamingDataInput in)
+            throws IORuntimeException {
+        int year = isoDigits(in, 4);
+        isoExpect(in, '-');
+        int month = isoDigits(in, 2);
+        isoExpect(in, '-');
+        int dayOfMonth = isoDigits(in, 2);
+        int ch = in.readUnsignedByte();
+        if (ch != 'T' && ch != 't' && ch != ' ')
+            throw notIso8601(in);
+        int hour = isoDigits(in, 2);
+        isoExpect(in, ':');
+        int minute = isoDigits(in, 2);
+        int second = 0;
+        long nanos = 0;
+        if (in.peekUnsignedByte() == ':') {
+            in.readSkip(1);
+            second = isoDigits(in, 2);
+            ch = in.peekUnsignedByte();
+            if (ch == '.' || ch == ',') {
+                in.readSkip(1);
+                int digits = 0;
+                while ((ch = in.peekUnsignedByte()) >= '0' && ch <= '9') {
+                    in.readSkip(1);
+                    if (digits < 9) {
+                        nanos = nanos * 10 + ch - '0';
+                        digits++;
+                    }
+                }
+                if (digits == 0)
+                    throw notIso8601(in);
+                nanos *= POWERS_OF_TEN[9 - digits];
+            }
+        }
+        if (month < 1 || month > 12 || dayOfMonth < 1 || dayOfMonth > daysInMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59)
+            throw notIso8601(in);
+
+        int offsetSeconds = 0;
+        ch = in.peekUnsignedByte();
+        if (ch == 'Z' || ch == 'z') {
+            in.readSkip(1);
+        } else if (ch == '+' || ch == '-') {
+            in.readSkip(1);
+            int offsetHours = isoDigits(in, 2);
+            int offsetMinutes = 0;
+            int next = in.peekUnsignedByte();
+            if (next == ':') {
+                in.readSkip(1);
+                offsetMinutes = isoDigits(in, 2);
+            } else if (next >= '0' && next <= '9') {
+                offsetMinutes = isoDigits(in, 2);
+            }
+            if (offsetHours > 18 || offsetMinutes > 59)
+                throw notIso8601(in);
+            offsetSeconds = offsetHours * 3600 + offsetMinutes * 60;
+            if (ch == '-')
+                offsetSeconds = -offsetSeconds;
+        }
+        if (in.readRemaining() > 0)
+            in.readSkip(1);
+
+        long seconds = epochDay(year, month, dayOfMonth) * 86400
+                + hour * 3600 + minute * 60 + second - offsetSeconds;
+        // so a time just inside the range before 1970 doesn't overflow part way.
+        if (seconds < 0 && nanos > 0) {
+            seconds++;
+            nanos -= 1_000_000_000;
+        }
+        try {
+            return Math.addExact(Math.multiplyExact(seconds, 1_000_000_000L), nanos);
+        } catch (ArithmeticException e) {
+            throw new IORuntimeException("ISO-8601 timestamp out of the range of epoch nanos at " + (in.readPosition() - 1));
+        }
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2)
+            return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+        // 31 days for odd months up to July, and even months from August
+        return 30 + ((month + (month >> 3)) & 1);
+    }
+
+    private static int isoDigits(@NotNull StreamingDataInput in, int count)
+            throws IORuntimeException {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            int ch = in.readUnsignedByte();
+            if (ch < '0' || ch > '9')
+                throw notIso8601(in);
+            value = value * 10 + ch - '0';
+        }
+        return value;
+    }
+
+    private static void isoExpect(@NotNull StreamingDataInput in, char expected)
+            throws IORuntimeException {
+        if (in.readUnsignedByte() != expected)
+            throw notIso8601(in);
+    }
+
+    @NotNull
+    private static IORuntimeException notIso8601(@NotNull StreamingDataInput in) {
+        return new IORuntimeException("Not an ISO-8601 timestamp at " + (in.readPosition() - 1));
+    }
+
     @NotNull
     public static <E extends Enum<E>, S extends StreamingDataInput<S>> E readEnum(@NotNull StreamingDataInput input, @NotNull Class<E> eClass)
             throws BufferUnderflowException, IORuntimeException {
@@ -2562,12 +3089,8 @@ enum BytesInternal {
     public static long findByte(@NotNull RandomDataInput bytes, byte stopByte) {
         try {
             long start = bytes.readPosition();
-            long remaining = bytes.readRemaining();
-            for (long i = 0; i < remaining; i++) {
-                if (bytes.readByte(start + i) == stopByte)
-                    return i;
-            }
-            return -1;
+            long index = ByteScanner.indexOf(bytes, start, start + bytes.readRemaining(), stopByte);
+            return index < 0 ? -1 : index - start;
         } catch (BufferUnderflowException e) {
             throw new AssertionError(e);
         }
@@ -2668,6 +3191,9 @@ enum BytesInternal {
         private long lastDay = Long.MIN_VALUE;
         @Nullable
         private byte[] lastDateStr = null;
+        // yyyy-MM-ddT of lastIsoDay
+        private final byte[] isoDate = new byte[11];
+        private long lastIsoDay = Long.MIN_VALUE;
 
         DateCache() {
             dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
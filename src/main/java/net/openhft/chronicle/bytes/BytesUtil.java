@@ -72,29 +72,14 @@ public enum BytesUtil {
 
     }
 
+    /**
+     * Compare two ranges a long at a time, reading direct memory without a bounds check per long.
+     */
     public static boolean bytesEqual(
             @NotNull RandomDataInput a, long offset,
             @NotNull RandomDataInput second, long secondOffset, long len)
             throws BufferUnderflowException {
-        long i = 0;
-        while (len - i >= 8L) {
-            if (a.readLong(offset + i) != second.readLong(secondOffset + i))
-                return false;
-            i += 8L;
-        }
-        if (len - i >= 4L) {
-            if (a.readInt(offset + i) != second.readInt(secondOffset + i))
-                return false;
-            i += 4L;
-        }
-        if (len - i >= 2L) {
-            if (a.readShort(offset + i) != second.readShort(secondOffset + i))
-                return false;
-            i += 2L;
-        }
-        if (i < len)
-            return a.readByte(offset + i) == second.readByte(secondOffset + i);
-        return true;
+        return ByteScanner.equalBytes(a, offset, second, secondOffset, len);
     }
 
     public static boolean bytesEqual(@Nullable CharSequence cs, @NotNull RandomDataInput bs, long offset, int length) {
@@ -150,6 +135,15 @@ public enum BytesUtil {
         return chars;
     }
 
+    /**
+     * @return a String of the 8-bit bytes from <code>position</code>, without a char[] on Java 9+
+     */
+    @NotNull
+    public static String to8bitString(@NotNull RandomDataInput bytes, long position, int length)
+            throws BufferUnderflowException {
+        return BytesInternal.to8bitString(bytes, position, length);
+    }
+
     public static long readStopBit(@NotNull StreamingDataInput in) throws IORuntimeException {
         return BytesInternal.readStopBit(in);
     }
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.bytes.util.BlockCompression;
+import net.openhft.chronicle.bytes.util.Compression;
+import net.openhft.chronicle.bytes.util.DecoratedBufferUnderflowException;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read only Bytes over a file written by {@link BlockCompression}.
+ * <p>
+ * Only the block containing the data read is uncompressed, and the most recently used blocks are cached.
+ * Like the chunks of a {@link MappedBytes}, each block is followed by the start of the next block so a read
+ * may run past the end of a block by up to a page.
+ * <p>
+ * This class is not thread safe.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class CompressedBytes extends AbstractBytes<Void> implements Closeable {
+    private static final int DEFAULT_CACHE_SIZE = 16;
+
+    @NotNull
+    private final Bytes frame;
+    @NotNull
+    private final BlockCompression blockCompression;
+    @NotNull
+    private final BlockCompression.Index index;
+    private final long length;
+    private final int overlap;
+    @NotNull
+    private final Map<Integer, MappedBytesStore> cache;
+    // the last block uncompressed for the overlap of the block before it.
+    @NotNull
+    private final Bytes nextBlock = Bytes.allocateElasticDirect();
+    private int nextBlockIndex = -1;
+    private long blocksUncompressed = 0;
+
+    protected CompressedBytes(@NotNull Bytes frame, @NotNull Compression compression, int cacheSize)
+            throws IORuntimeException {
+        super(NoBytesStore.noBytesStore(), NoBytesStore.noBytesStore().writePosition(),
+                NoBytesStore.noBytesStore().writeLimit());
+        if (cacheSize <= 0)
+            throw new IllegalArgumentException("cacheSize: " + cacheSize);
+        this.frame = frame;
+        this.index = BlockCompression.readIndex(frame);
+        this.blockCompression = new BlockCompression(compression, index.blockSize());
+        this.length = index.uncompressedLength();
+        this.overlap = Math.min(index.blockSize(), OS.pageSize());
+        this.cache = new LinkedHashMap<Integer, MappedBytesStore>(cacheSize * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, MappedBytesStore> eldest) {
+                if (size() <= cacheSize)
+                    return false;
+                eldest.getValue().release();
+                return true;
+            }
+        };
+        readPosition = 0;
+        writeLimit = length;
+        uncheckedWritePosition(length);
+    }
+
+    /**
+     * Open a compressed file for reading.
+     *
+     * @param file written by {@link BlockCompression} with one of the standard compressions
+     */
+    @NotNull
+    public static CompressedBytes readOnly(@NotNull File file) throws FileNotFoundException, IORuntimeException {
+        return readOnly(file, null, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Open a compressed file for reading.
+     *
+     * @param file        written by {@link BlockCompression}
+     * @param compression to uncompress with, or <code>null</code> for the one recorded in the file
+     * @param cacheSize   the number of uncompressed blocks to keep
+     */
+    @NotNull
+    public static CompressedBytes readOnly(@NotNull File file, @Nullable Compression compression, int cacheSize)
+            throws FileNotFoundException, IORuntimeException {
+        MappedBytes frame = MappedBytes.readOnly(file);
+        try {
+            frame.readLimit(file.length());
+            if (compression == null) {
+                compression = BlockCompression.readIndex(frame).compression();
+                if (compression == null)
+                    throw new IORuntimeException("Unknown compression for " + file);
+            }
+            return new CompressedBytes(frame, compression, cacheSize);
+
+        } catch (RuntimeException e) {
+            frame.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of times a block has been uncompressed.
+     */
+    public long blocksUncompressed() {
+        return blocksUncompressed;
+    }
+
+    @Override
+    public BytesStore<Bytes<Void>, Void> copy() {
+        return NativeBytes.copyOf(this);
+    }
+
+    @Override
+    public long capacity() {
+        return length;
+    }
+
+    @Override
+    public long realCapacity() {
+        return length;
+    }
+
+    @Override
+    public long start() {
+        return 0L;
+    }
+
+    @Override
+    public boolean isElastic() {
+        return false;
+    }
+
+    @Override
+    public boolean isDirectMemory() {
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public MappedBytesStore bytesStore() {
+        return (MappedBytesStore) super.bytesStore();
+    }
+
+    @NotNull
+    @Override
+    public Bytes<Void> readPosition(long position) throws BufferUnderflowException {
+        if (!bytesStore.inside(position))
+            acquireBlock(position);
+        return super.readPosition(position);
+    }
+
+    @NotNull
+    @Override
+    public Bytes<Void> readSkip(long bytesToSkip) throws BufferUnderflowException {
+        if (readPosition + bytesToSkip > readLimit() || readPosition + bytesToSkip < 0)
+            throw new BufferUnderflowException();
+        readPosition += bytesToSkip;
+        return this;
+    }
+
+    @Override
+    public long addressForRead(long offset) throws BufferUnderflowException {
+        checkInside(offset, 1);
+        return bytesStore.addressForRead(offset);
+    }
+
+    @Override
+    public long addressForRead(long offset, int buffer) throws UnsupportedOperationException, BufferUnderflowException {
+        checkInside(offset, buffer);
+        return bytesStore.addressForRead(offset);
+    }
+
+    @Override
+    public long addressForWrite(long offset) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("Read only");
+    }
+
+    @Override
+    protected void readCheckOffset(long offset, long adding, boolean given) throws BufferUnderflowException {
+        long check = adding >= 0 ? offset : offset + adding;
+        checkInside(check, Math.abs(adding));
+        super.readCheckOffset(offset, adding, given);
+    }
+
+    @Override
+    protected void writeCheckOffset(long offset, long adding) throws BufferOverflowException {
+        throw new UnsupportedOperationException("Read only");
+    }
+
+    @Override
+    public void ensureCapacity(long size) throws IllegalArgumentException {
+        throw new UnsupportedOperationException("Read only");
+    }
+
+    @Nullable
+    @Override
+    public String read8bit() throws IORuntimeException, BufferUnderflowException {
+        return BytesInternal.read8bit(this);
+    }
+
+    @Override
+    public long readStopBit() throws IORuntimeException {
+        long offset = readOffsetPositionMoved(1);
+        byte l = bytesStore.readByte(offset);
+
+        if (l >= 0)
+            return l;
+        return BytesInternal.readStopBit0(this, l);
+    }
+
+    @Override
+    public char readStopBitChar() throws IORuntimeException {
+        long offset = readOffsetPositionMoved(1);
+        byte l = bytesStore.readByte(offset);
+
+        if (l >= 0)
+            return (char) l;
+        return (char) BytesInternal.readStopBit0(this, l);
+    }
+
+    @Override
+    public byte readVolatileByte(long offset) throws BufferUnderflowException {
+        checkInside(offset, 1);
+        return bytesStore.readVolatileByte(offset);
+    }
+
+    @Override
+    public short readVolatileShort(long offset) throws BufferUnderflowException {
+        checkInside(offset, 2);
+        return bytesStore.readVolatileShort(offset);
+    }
+
+    @Override
+    public int readVolatileInt(long offset) throws BufferUnderflowException {
+        checkInside(offset, 4);
+        return bytesStore.readVolatileInt(offset);
+    }
+
+    @Override
+    public long readVolatileLong(long offset) throws BufferUnderflowException {
+        checkInside(offset, 8);
+        return bytesStore.readVolatileLong(offset);
+    }
+
+    @Override
+    public int peekUnsignedByte() {
+        return peekUnsignedByte(readPosition);
+    }
+
+    @Override
+    public int peekUnsignedByte(long offset) throws BufferUnderflowException {
+        if (offset < 0 || offset >= readLimit())
+            return -1;
+        checkInside(offset, 1);
+        return super.peekUnsignedByte(offset);
+    }
+
+    @Override
+    public boolean sharedMemory() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return refCount() <= 0;
+    }
+
+    @Override
+    protected void performRelease() throws IllegalStateException {
+        super.performRelease();
+        for (MappedBytesStore store : cache.values())
+            store.release();
+        cache.clear();
+        nextBlock.release();
+        frame.release();
+    }
+
+    /**
+     * Make sure the <code>adding</code> bytes from <code>offset</code> are in the current block.
+     */
+    private void checkInside(long offset, long adding) throws BufferUnderflowException {
+        if (inBlock(offset, adding))
+            return;
+        if (offset < 0 || offset + adding > length)
+            throw new DecoratedBufferUnderflowException(String.format(
+                    "Offset: %d + adding: %d > length: %d", offset, adding, length));
+        acquireBlock(offset);
+        if (!inBlock(offset, adding))
+            throw new DecoratedBufferUnderflowException(String.format(
+                    "Offset: %d + adding: %d is more than %d bytes past the end of a block", offset, adding, overlap));
+    }
+
+    private boolean inBlock(long offset, long adding) {
+        BytesStore bs = this.bytesStore;
+        return bs instanceof MappedBytesStore
+                && bs.start() <= offset
+                && offset + adding <= ((MappedBytesStore) bs).maximumLimit;
+    }
+
+    private void acquireBlock(long offset) throws IORuntimeException {
+        if (index.blockCount() == 0)
+            return;
+        int block = (int) Math.min(index.blockFor(Math.max(0, offset)), index.blockCount() - 1L);
+        MappedBytesStore store = cache.get(block);
+        if (store == null) {
+            store = uncompressBlock(block);
+            cache.put(block, store);
+        }
+        store.reserve();
+        BytesStore oldBS = this.bytesStore;
+        this.bytesStore = (BytesStore) store;
+        oldBS.release();
+    }
+
+    @NotNull
+    private MappedBytesStore uncompressBlock(int block) throws IORuntimeException {
+        long start = (long) block * index.blockSize();
+        int blockLength = index.uncompressedLength(block);
+        int overlapLength = block + 1 < index.blockCount() ? Math.min(overlap, index.uncompressedLength(block + 1)) : 0;
+        NativeBytesStore<Void> memory = NativeBytesStore.lazyNativeBytesStoreWithFixedCapacity(blockLength + overlapLength);
+        Bytes<Void> out = memory.bytesForWrite();
+        try {
+            if (nextBlockIndex == block) {
+                out.write(nextBlock);
+            } else {
+                blockCompression.uncompressBlock(frame, index, block, out);
+                blocksUncompressed++;
+            }
+            if (out.writePosition() != blockLength)
+                throw new IORuntimeException("Block " + block + " uncompressed to " + out.writePosition() + " bytes, expected " + blockLength);
+            MappedBytesStore next = cache.get(block + 1);
+            if (next != null) {
+                out.write(next, next.start(), overlapLength);
+            } else if (overlapLength > 0) {
+                // a sequential reader will want the next block next.
+                nextBlock.clear();
+                blockCompression.uncompressBlock(frame, index, block + 1, nextBlock);
+                blocksUncompressed++;
+                nextBlockIndex = block + 1;
+                out.write(nextBlock, nextBlock.readPosition(), overlapLength);
+            }
+        } catch (RuntimeException e) {
+            memory.release();
+            throw e;
+        } finally {
+            out.release();
+        }
+        return new MappedBytesStore(start, memory.addressForRead(0), blockLength + overlapLength, blockLength, memory::release);
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.bytes.util.EscapingStopCharsTester;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.BufferOverflowException;
+
+/**
+ * Reads records of delimited fields, e.g. CSV, from the readPosition() of a Bytes without creating any objects
+ * per record, so a MappedBytes over a large file can be read in place.
+ * <p>
+ * A record ends with <code>\n</code>, <code>\r\n</code> or <code>\r</code>, or at the readLimit().
+ * A field which starts with the quote may contain separators and line ends, and a quote is written as two quotes.
+ * With escaping on, as with {@link EscapingStopCharsTester}, a backslash makes the next byte part of the field.
+ * Fields are 8-bit text. Unquoted text is found eight bytes at a time and copied in one go.
+ * <pre>
+ * DelimitedTokenizer tokenizer = new DelimitedTokenizer(bytes);
+ * while (tokenizer.nextRecord()) {
+ *     tokenizer.nextField(symbol);
+ *     long quantity = tokenizer.nextLong();
+ *     double price = tokenizer.nextDouble();
+ * }
+ * </pre>
+ * Any fields not read are skipped by the next call to nextRecord(). This class is not thread safe.
+ */
+@SuppressWarnings("rawtypes")
+public class DelimitedTokenizer {
+    private static final byte ESCAPE = '\\';
+
+    @NotNull
+    private final Bytes in;
+    private byte separator = ',';
+    private byte quote = '"';
+    private boolean escaping = false;
+    // the bytes which end an unquoted field, and those which interrupt a quoted one.
+    private long[] fieldStops;
+    private long[] quotedStops;
+    private boolean fieldPending = false;
+
+    public DelimitedTokenizer(@NotNull Bytes in) {
+        this.in = in;
+        updateStops();
+    }
+
+    @NotNull
+    public Bytes bytes() {
+        return in;
+    }
+
+    /**
+     * @param separator between fields, ',' by default
+     */
+    @NotNull
+    public DelimitedTokenizer separator(char separator) throws IllegalArgumentException {
+        this.separator = checkDelimiter(separator);
+        updateStops();
+        return this;
+    }
+
+    /**
+     * @param quote around fields containing separators or line ends, '"' by default
+     */
+    @NotNull
+    public DelimitedTokenizer quote(char quote) throws IllegalArgumentException {
+        this.quote = checkDelimiter(quote);
+        updateStops();
+        return this;
+    }
+
+    /**
+     * @param escaping whether a backslash makes the next byte part of the field, off by default
+     */
+    @NotNull
+    public DelimitedTokenizer escaping(boolean escaping) throws IllegalArgumentException {
+        this.escaping = escaping;
+        updateStops();
+        return this;
+    }
+
+    /**
+     * Move to the start of the next record, skipping any fields of the current record not read.
+     *
+     * @return <code>true</code> if there is another record, or <code>false</code> at the readLimit()
+     */
+    public boolean nextRecord() throws IORuntimeException {
+        while (fieldPending)
+            skipField();
+        if (in.readRemaining() <= 0)
+            return false;
+        fieldPending = true;
+        return true;
+    }
+
+    /**
+     * @return whether the current record has another field, even if it is empty.
+     */
+    public boolean hasNextField() {
+        return fieldPending;
+    }
+
+    /**
+     * Copy the next field, without its quotes or escapes, to <code>buffer</code> which is cleared first.
+     */
+    public void nextField(@NotNull Bytes buffer) throws IORuntimeException, BufferOverflowException {
+        buffer.clear();
+        readField(buffer);
+    }
+
+    public void skipField() throws IORuntimeException {
+        readField(null);
+    }
+
+    /**
+     * Parse the next field as with {@link ByteStringParser#parseLong()}, without copying it.
+     *
+     * @return the value, or 0 if the field is empty
+     */
+    public long nextLong() throws IORuntimeException {
+        long limit = in.readLimit();
+        long end = startNumber(limit);
+        try {
+            return in.readRemaining() > 0 ? in.parseLong() : 0;
+        } finally {
+            endNumber(end, limit);
+        }
+    }
+
+    /**
+     * Parse the next field as with {@link ByteStringParser#parseDouble()}, without copying it.
+     *
+     * @return the value, or NaN if the field is empty
+     */
+    public double nextDouble() throws IORuntimeException {
+        long limit = in.readLimit();
+        long end = startNumber(limit);
+        try {
+            return in.readRemaining() > 0 ? in.parseDouble() : Double.NaN;
+        } finally {
+            endNumber(end, limit);
+        }
+    }
+
+    private void readField(@Nullable Bytes buffer) throws IORuntimeException {
+        checkField();
+        long limit = in.readLimit();
+        long pos = in.readPosition();
+        if (pos < limit && in.readByte(pos) == quote)
+            pos = readQuoted(pos, limit, buffer);
+        else
+            pos = readUnquoted(pos, limit, buffer);
+        endField(pos, limit);
+    }
+
+    private long readUnquoted(long pos, long limit, @Nullable Bytes buffer) {
+        while (true) {
+            long end = indexOf(pos, limit, fieldStops);
+            if (end < 0)
+                end = limit;
+            if (buffer != null)
+                buffer.write(in, pos, end - pos);
+            if (!escaping || end >= limit || in.readByte(end) != ESCAPE)
+                return end;
+            // a backslash at the end is dropped.
+            if (end + 1 >= limit)
+                return limit;
+            if (buffer != null)
+                buffer.writeByte(in.readByte(end + 1));
+            pos = end + 2;
+        }
+    }
+
+    /**
+     * @return the offset after the closing quote
+     */
+    private long readQuoted(long start, long limit, @Nullable Bytes buffer) throws IORuntimeException {
+        long pos = start + 1;
+        while (true) {
+            long end = indexOf(pos, limit, quotedStops);
+            if (end < 0 || (end + 1 >= limit && in.readByte(end) != quote))
+                throw new IORuntimeException("Unterminated quoted field at " + start);
+            if (buffer != null)
+                buffer.write(in, pos, end - pos);
+            if (in.readByte(end) == quote) {
+                if (end + 1 >= limit || in.readByte(end + 1) != quote)
+                    return end + 1;
+                // a quote written as two quotes
+                if (buffer != null)
+                    buffer.writeByte(quote);
+            } else if (buffer != null) {
+                buffer.writeByte(in.readByte(end + 1));
+            }
+            pos = end + 2;
+        }
+    }
+
+    /**
+     * Limit the input to the text of the next field so it can be parsed in place.
+     *
+     * @return the offset after the field, including any closing quote
+     */
+    private long startNumber(long limit) throws IORuntimeException {
+        checkField();
+        long pos = in.readPosition();
+        long start = pos, end;
+        boolean quoted = pos < limit && in.readByte(pos) == quote;
+        if (quoted) {
+            start++;
+            end = indexOf(start, limit, quotedStops);
+            if (end < 0 || in.readByte(end) != quote)
+                throw new IORuntimeException("Unterminated quoted number at " + pos);
+        } else {
+            end = indexOf(pos, limit, fieldStops);
+            if (end < 0)
+                end = limit;
+        }
+        in.readPosition(start);
+        in.readLimit(end);
+        return quoted ? end + 1 : end;
+    }
+
+    private void endNumber(long end, long limit) throws IORuntimeException {
+        in.readLimit(limit);
+        endField(end, limit);
+    }
+
+    /**
+     * Consume the separator or the end of the record after a field.
+     */
+    private void endField(long pos, long limit) throws IORuntimeException {
+        if (pos < limit) {
+            byte b = in.readByte(pos);
+            if (b == separator) {
+                in.readPosition(pos + 1);
+                return;
+            }
+            if (b == '\r') {
+                pos++;
+                if (pos < limit && in.readByte(pos) == '\n')
+                    pos++;
+            } else if (b == '\n') {
+                pos++;
+            } else {
+                throw new IORuntimeException("Expected a separator or the end of the record at " + pos);
+            }
+        }
+        fieldPending = false;
+        in.readPosition(pos);
+    }
+
+    private void checkField() throws IllegalStateException {
+        if (!fieldPending)
+            throw new IllegalStateException("No more fields in this record, call nextRecord()");
+    }
+
+    private long indexOf(long from, long to, @NotNull long[] stops) {
+        return from >= to ? -1 : ByteScanner.indexOfAny(in, from, to, stops);
+    }
+
+    private void updateStops() throws IllegalArgumentException {
+        if (separator == quote || (escaping && (separator == ESCAPE || quote == ESCAPE)))
+            throw new IllegalArgumentException("The separator, quote and escape must be different");
+        fieldStops = escaping
+                ? patterns(separator, (byte) '\n', (byte) '\r', ESCAPE)
+                : patterns(separator, (byte) '\n', (byte) '\r');
+        quotedStops = escaping
+                ? patterns(quote, ESCAPE)
+                : patterns(quote);
+    }
+
+    @NotNull
+    private static long[] patterns(@NotNull byte... bytes) {
+        long[] patterns = new long[bytes.length];
+        for (int i = 0; i < bytes.length; i++)
+            patterns[i] = ByteScanner.pattern(bytes[i]);
+        return patterns;
+    }
+
+    private static byte checkDelimiter(char ch) throws IllegalArgumentException {
+        if (ch > 127 || ch == '\n' || ch == '\r')
+            throw new IllegalArgumentException("Not a valid delimiter: " + (int) ch);
+        return (byte) ch;
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+
+/**
+ * Writes the shortest decimal which parses back to the same double, using the Schubfach algorithm.
+ * <p>
+ * The output is always in plain notation, never with an exponent. Whole numbers below 2^52 end in ".0".
+ * <p>
+ * See Raffaello Giulietti, "The Schubfach way to render doubles", 2020.
+ */
+enum DoubleFormatter {
+    ;
+    private static final int P = 53;
+    private static final int Q_MIN = -1074;
+    private static final long C_MIN = 1L << (P - 1);
+    // subnormal significands below this need an extra digit of precision
+    private static final int C_TINY = 3;
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+    private static final long MASK_63 = Long.MAX_VALUE;
+    // g1 and g0 for 10^-k, the high and low 63 bits of floor(10^-k / 2^r) + 1, scaled to 126 bits
+    private static final long[] G = new long[(K_MAX - K_MIN + 1) * 2];
+    private static final long[] TENS = new long[18];
+    private static final byte[] INFINITY = {'I', 'n', 'f', 'i', 'n', 'i', 't', 'y'};
+    private static final byte[] NAN = {'N', 'a', 'N'};
+
+    static {
+        for (int k = K_MIN; k <= K_MAX; k++) {
+            BigInteger g;
+            if (k <= 0) {
+                BigInteger p = BigInteger.TEN.pow(-k);
+                int r = p.bitLength() - 126;
+                g = r >= 0 ? p.shiftRight(r) : p.shiftLeft(-r);
+            } else {
+                BigInteger d = BigInteger.TEN.pow(k);
+                int s = 125 + d.bitLength();
+                g = BigInteger.ONE.shiftLeft(s).divide(d);
+                if (g.bitLength() > 126)
+                    g = g.shiftRight(1);
+            }
+            g = g.add(BigInteger.ONE);
+            G[2 * (k - K_MIN)] = g.shiftRight(63).longValue();
+            G[2 * (k - K_MIN) + 1] = g.longValue() & MASK_63;
+        }
+        long ten = 1;
+        for (int i = 0; i < TENS.length; i++, ten *= 10)
+            TENS[i] = ten;
+    }
+
+    /**
+     * The most bytes written for a double, a subnormal in plain notation.
+     */
+    static final int MAX_LENGTH = 344;
+    private static final Memory MEMORY = OS.memory();
+
+    static void append(@NotNull StreamingDataOutput out, double v) throws BufferOverflowException {
+        append(out, 0, v);
+    }
+
+    /**
+     * Write to native memory which has room for at least {@link #MAX_LENGTH} bytes.
+     *
+     * @return the address after the last byte written
+     */
+    static long append(long address, double v) {
+        return append(null, address, v);
+    }
+
+    /**
+     * Write to <code>out</code>, or to <code>address</code> if <code>out</code> is <code>null</code>.
+     *
+     * @return the address after the last byte written, if writing to memory
+     */
+    private static long append(@Nullable StreamingDataOutput out, long address, double v) throws BufferOverflowException {
+        long bits = Double.doubleToRawLongBits(v);
+        long t = bits & (C_MIN - 1);
+        int bq = (int) (bits >>> (P - 1)) & 0x7FF;
+        if (bq == 0x7FF) {
+            if (t != 0)
+                return put(out, address, NAN);
+            if (bits < 0)
+                address = put(out, address, '-');
+            return put(out, address, INFINITY);
+        }
+        if (bits < 0)
+            address = put(out, address, '-');
+        if (bq != 0) {
+            int mq = -Q_MIN + 1 - bq;
+            long c = C_MIN | t;
+            // a whole number which fits in the significand
+            if (0 < mq && mq < P) {
+                long f = c >> mq;
+                if (f << mq == c)
+                    return appendDecimal(out, address, f, 0, true);
+            }
+            return toDecimal(out, address, -mq, c, 0);
+        }
+        if (t != 0) {
+            if (t < C_TINY)
+                return toDecimal(out, address, Q_MIN, 10 * t, -1);
+            return toDecimal(out, address, Q_MIN, t, 0);
+        }
+        address = put(out, address, '0');
+        address = put(out, address, '.');
+        return put(out, address, '0');
+    }
+
+    /**
+     * Find the shortest decimal in the rounding interval of <code>c * 2^q</code>, choosing the closest if there
+     * is more than one.
+     */
+    private static long toDecimal(@Nullable StreamingDataOutput out, long address, int q, long c, int dk)
+            throws BufferOverflowException {
+        int odd = (int) c & 1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != C_MIN || q == Q_MIN) {
+            cbl = cb - 2;
+            k = floorLog10Pow2(q);
+        } else {
+            // the interval is narrower below a power of two
+            cbl = cb - 1;
+            k = floorLog10ThreeQuartersPow2(q);
+        }
+        int h = q + floorLog2Pow10(-k) + 2;
+
+        long g1 = G[2 * (k - K_MIN)];
+        long g0 = G[2 * (k - K_MIN) + 1];
+
+        long vb = roundToOdd(g1, g0, cb << h);
+        long vbl = roundToOdd(g1, g0, cbl << h);
+        long vbr = roundToOdd(g1, g0, cbr << h);
+
+        long s = vb >> 2;
+        if (s >= 100) {
+            // try one digit less, s / 10 * 10 without a division
+            long sp10 = 10 * DoubleParser.unsignedMultiplyHigh(s, 115_292_150_460_684_698L << 4);
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + odd <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + odd <= vbr;
+            if (upin != wpin)
+                return appendDecimal(out, address, upin ? sp10 : tp10, k, false);
+        }
+        long t = s + 1;
+        boolean uin = vbl + odd <= s << 2;
+        boolean win = (t << 2) + odd <= vbr;
+        if (uin != win)
+            return appendDecimal(out, address, uin ? s : t, k + dk, false);
+        long cmp = vb - (s + t << 1);
+        return appendDecimal(out, address, cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t, k + dk, false);
+    }
+
+    private static long roundToOdd(long g1, long g0, long cp) {
+        long x1 = DoubleParser.unsignedMultiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = DoubleParser.unsignedMultiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    private static int floorLog10Pow2(int e) {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+
+    private static int floorLog10ThreeQuartersPow2(int e) {
+        return (int) (e * 661_971_961_083L - 274_743_187_321L >> 41);
+    }
+
+    private static int floorLog2Pow10(int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+
+    /**
+     * Write <code>f * 10^e</code> in plain notation.
+     *
+     * @param whole whether this is a whole number below 2^52, which gets ".0"
+     */
+    private static long appendDecimal(@Nullable StreamingDataOutput out, long address, long f, int e, boolean whole)
+            throws BufferOverflowException {
+        if (!whole) {
+            while (f % 10 == 0) {
+                f /= 10;
+                e++;
+            }
+        }
+        int length = BytesInternal.digitCount(f);
+        int point = length + e;
+        if (point <= 0) {
+            address = put(out, address, '0');
+            address = put(out, address, '.');
+            for (int i = point; i < 0; i++)
+                address = put(out, address, '0');
+            address = appendDigits(out, address, f, length, 0, length);
+        } else if (point < length) {
+            address = appendDigits(out, address, f, length, 0, point);
+            address = put(out, address, '.');
+            address = appendDigits(out, address, f, length, point, length);
+        } else {
+            address = appendDigits(out, address, f, length, 0, length);
+            for (int i = length; i < point; i++)
+                address = put(out, address, '0');
+            if (whole) {
+                address = put(out, address, '.');
+                address = put(out, address, '0');
+            }
+        }
+        return address;
+    }
+
+    /**
+     * Write the digits of <code>f</code> from index <code>from</code> to <code>to</code>, counting from the most
+     * significant of its <code>length</code> digits.
+     */
+    private static long appendDigits(@Nullable StreamingDataOutput out, long address, long f, int length, int from, int to)
+            throws BufferOverflowException {
+        for (int i = from; i < to; i++) {
+            long digit = f / TENS[length - 1 - i] % 10;
+            address = put(out, address, (int) ('0' + digit));
+        }
+        return address;
+    }
+
+    private static long put(@Nullable StreamingDataOutput out, long address, int b) throws BufferOverflowException {
+        if (out == null) {
+            MEMORY.writeByte(address, (byte) b);
+            return address + 1;
+        }
+        out.rawWriteByte((byte) b);
+        return address;
+    }
+
+    private static long put(@Nullable StreamingDataOutput out, long address, @NotNull byte[] bytes)
+            throws BufferOverflowException {
+        for (byte b : bytes)
+            address = put(out, address, b);
+        return address;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes;
+
+import java.math.BigInteger;
+
+/**
+ * Converts a decimal mantissa and exponent to the nearest double, using the Eisel-Lemire algorithm.
+ * <p>
+ * The mantissa is multiplied by a 128-bit approximation of the power of five, and the power of two is
+ * added to the exponent. The result is exact except in rare cases where the 128-bit product is too close
+ * to half way between two doubles to tell, or the double would be subnormal. For these the caller has to
+ * fall back to an exact conversion.
+ * <p>
+ * See Daniel Lemire, "Number Parsing at a Gigabyte per Second", Software: Practice and Experience 51 (8), 2021.
+ */
+enum DoubleParser {
+    ;
+    static final int MIN_EXPONENT = -342;
+    static final int MAX_EXPONENT = 308;
+    // the high and low 64 bits of 5^q, normalised so the top bit is set, for q from MIN_EXPONENT to MAX_EXPONENT
+    private static final long[] POWER_OF_FIVE_HIGH = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+    private static final long[] POWER_OF_FIVE_LOW = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+    // powers of ten a double holds exactly
+    private static final double[] EXACT_POWERS_OF_TEN = new double[23];
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    static {
+        BigInteger five = BigInteger.valueOf(5);
+        BigInteger twoTo128 = BigInteger.ONE.shiftLeft(128);
+        for (int q = MIN_EXPONENT; q <= MAX_EXPONENT; q++) {
+            BigInteger c;
+            if (q >= 0) {
+                // truncated
+                c = five.pow(q);
+                int bits = c.bitLength();
+                c = bits < 128 ? c.shiftLeft(128 - bits) : c.shiftRight(bits - 128);
+            } else {
+                // the reciprocal, rounded up
+                BigInteger power5 = five.pow(-q);
+                int z = power5.bitLength();
+                int b = q >= -27 ? z + 127 : 2 * z + 128;
+                c = BigInteger.ONE.shiftLeft(b).divide(power5).add(BigInteger.ONE);
+                while (c.compareTo(twoTo128) >= 0)
+                    c = c.shiftRight(1);
+            }
+            POWER_OF_FIVE_HIGH[q - MIN_EXPONENT] = c.shiftRight(64).longValue();
+            POWER_OF_FIVE_LOW[q - MIN_EXPONENT] = c.longValue();
+        }
+        double d = 1;
+        for (int i = 0; i < EXACT_POWERS_OF_TEN.length; i++, d *= 10)
+            EXACT_POWERS_OF_TEN[i] = d;
+    }
+
+    /**
+     * @param mantissa the decimal digits as an unsigned long
+     * @param exp10    the power of ten to multiply them by
+     * @return the nearest double to <code>mantissa * 10^exp10</code>, or NaN if it couldn't be determined.
+     */
+    static double toDouble(boolean negative, long mantissa, int exp10) {
+        if (mantissa == 0 || exp10 < MIN_EXPONENT)
+            return negative ? -0.0 : 0.0;
+        if (exp10 > MAX_EXPONENT)
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+
+        // Clinger's fast path, when both the mantissa and the power of ten are exact doubles.
+        if (mantissa >= 0 && mantissa <= MAX_EXACT_MANTISSA) {
+            if (-22 <= exp10 && exp10 <= 22) {
+                double d = mantissa;
+                d = exp10 < 0 ? d / EXACT_POWERS_OF_TEN[-exp10] : d * EXACT_POWERS_OF_TEN[exp10];
+                return negative ? -d : d;
+            }
+            if (exp10 > 22 && exp10 <= 22 + 15) {
+                long m = mantissa * (long) EXACT_POWERS_OF_TEN[exp10 - 22];
+                if (m <= MAX_EXACT_MANTISSA && m / (long) EXACT_POWERS_OF_TEN[exp10 - 22] == mantissa) {
+                    double d = m * EXACT_POWERS_OF_TEN[22];
+                    return negative ? -d : d;
+                }
+            }
+        }
+
+        long factor = POWER_OF_FIVE_HIGH[exp10 - MIN_EXPONENT];
+        // floor(exp10 * log2(10)) + bias + 63
+        int exponent = ((217706 * exp10) >> 16) + 1024 + 63;
+        int lz = Long.numberOfLeadingZeros(mantissa);
+        long w = mantissa << lz;
+        long lower = w * factor;
+        long upper = unsignedMultiplyHigh(w, factor);
+        if ((upper & 0x1FF) == 0x1FF && Long.compareUnsigned(lower + w, lower) < 0) {
+            // not enough precision in the first 64 bits, use the next 64 bits of the power of five
+            long factorLow = POWER_OF_FIVE_LOW[exp10 - MIN_EXPONENT];
+            long productLow = w * factorLow;
+            long productMiddle = lower + unsignedMultiplyHigh(w, factorLow);
+            if (Long.compareUnsigned(productMiddle, lower) < 0)
+                upper++;
+            if (productMiddle + 1 == 0 && (upper & 0x1FF) == 0x1FF && Long.compareUnsigned(productLow + w, productLow) < 0)
+                return Double.NaN;
+            lower = productMiddle;
+        }
+        int upperBit = (int) (upper >>> 63);
+        long m = upper >>> (upperBit + 9);
+        lz += 1 ^ upperBit;
+        // possibly exactly half way, round to even can't be decided here.
+        if (lower == 0 && (upper & 0x1FF) == 0 && (m & 3) == 1)
+            return Double.NaN;
+        m += m & 1;
+        m >>>= 1;
+        if (m >= MAX_EXACT_MANTISSA) {
+            m = 1L << 52;
+            lz--;
+        }
+        m &= ~(1L << 52);
+        long realExponent = exponent - lz;
+        if (realExponent > 2046)
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        if (realExponent < 1)
+            // subnormal
+            return Double.NaN;
+        return Double.longBitsToDouble(m | realExponent << 52 | (negative ? 1L << 63 : 0));
+    }
+
+    /**
+     * @return the high 64 bits of the unsigned 128-bit product, as Math.multiplyHigh is signed and Java 9+
+     */
+    static long unsignedMultiplyHigh(long x, long y) {
+        long x0 = x & 0xFFFFFFFFL, x1 = x >>> 32;
+        long y0 = y & 0xFFFFFFFFL, y1 = y >>> 32;
+        long p11 = x1 * y1, p01 = x0 * y1, p10 = x1 * y0, p00 = x0 * y0;
+        long middle = p10 + (p00 >>> 32) + (p01 & 0xFFFFFFFFL);
+        return p11 + (middle >>> 32) + (p01 >>> 32);
+    }
+}
@@ -40,6 +40,11 @@ public class GuardedNativeBytes<Underlying> extends NativeBytes<Underlying> {
         return super.writeInt(i);
     }
 
+    @Override
+    public Bytes<Underlying> rawWriteLong(long i64) throws BufferOverflowException {
+        return super.writeLong(i64);
+    }
+
     @Override
     public byte readByte() {
         expectByte(BYTE_T);
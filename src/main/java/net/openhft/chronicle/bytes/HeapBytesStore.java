@@ -30,6 +30,7 @@ import sun.nio.ch.DirectBuffer;
 import java.nio.BufferOverflowException;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
@@ -89,6 +90,20 @@ public class HeapBytesStore<Underlying>
         System.arraycopy(realUnderlyingObject, Maths.toUInt31(from), realUnderlyingObject, Maths.toUInt31(to), Maths.toUInt31(length));
     }
 
+    @NotNull
+    @Override
+    public HeapBytesStore<Underlying> zeroOut(long start, long end) {
+        if (start < start())
+            start = start();
+        if (end > capacity())
+            end = capacity();
+        if (end <= start)
+            return this;
+        int base = dataOffset - Unsafe.ARRAY_BYTE_BASE_OFFSET;
+        Arrays.fill((byte[]) realUnderlyingObject, base + (int) start, base + (int) end, (byte) 0);
+        return this;
+    }
+
     @NotNull
     @Override
     public String toString() {
@@ -0,0 +1,473 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A pull tokenizer for JSON which reads from the readPosition() of a Bytes without creating any objects.
+ * Each token is reported with its offset and length in the Bytes rather than as a String, and strings and
+ * numbers are only decoded when asked for.
+ * <pre>
+ * JsonTokenizer json = new JsonTokenizer(bytes);
+ * for (JsonTokenizer.Token token; (token = json.next()) != JsonTokenizer.Token.END; ) {
+ *     if (token == JsonTokenizer.Token.NAME &amp;&amp; json.textEquals("price")) {
+ *         json.next();
+ *         double price = json.doubleValue();
+ *     }
+ * }
+ * </pre>
+ * The nesting and separators are checked, but numbers are only checked to contain the characters a number
+ * can have, and control characters in strings are not rejected. A sequence of values, e.g. newline delimited
+ * JSON, can be read one after another. The end of a string and runs of spaces are found eight bytes at a time.
+ * <p>
+ * This class is not thread safe.
+ */
+@SuppressWarnings("rawtypes")
+public class JsonTokenizer {
+    public enum Token {
+        START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY,
+        /**
+         * The name of a field of an object, the ':' after it has been read.
+         */
+        NAME,
+        STRING, NUMBER, TRUE, FALSE, NULL,
+        /**
+         * There are no more values before the readLimit().
+         */
+        END
+    }
+
+    private static final byte OBJECT = 1, ARRAY = 2;
+    // what can come next
+    private static final int TOP = 0, VALUE = 1, VALUE_OR_END = 2, NAME_OR_END = 3, NAME_EXPECTED = 4, COMMA_OR_END = 5;
+    private static final long SPACES = ByteScanner.pattern(' ');
+    private static final long[] STRING_STOPS = {ByteScanner.pattern('"'), ByteScanner.pattern('\\')};
+
+    @NotNull
+    private final Bytes in;
+    @NotNull
+    private final StringBuilder text = new StringBuilder();
+    private byte[] containers = new byte[16];
+    private int depth = 0;
+    private int state = TOP;
+    @Nullable
+    private Token token;
+    private long tokenOffset;
+    private int tokenLength;
+    private boolean escaped;
+
+    public JsonTokenizer(@NotNull Bytes in) {
+        this.in = in;
+    }
+
+    @NotNull
+    public Bytes bytes() {
+        return in;
+    }
+
+    /**
+     * Read the next token.
+     *
+     * @return the token, or {@link Token#END} if there are no more values
+     * @throws IORuntimeException if the JSON is not well formed
+     */
+    @NotNull
+    public Token next() throws IORuntimeException {
+        int c = skipWhitespace();
+        switch (state) {
+            case COMMA_OR_END:
+                if (c != ',')
+                    return close(c);
+                in.readSkip(1);
+                state = containers[depth - 1] == OBJECT ? NAME_EXPECTED : VALUE;
+                c = skipWhitespace();
+                break;
+            case VALUE_OR_END:
+            case NAME_OR_END:
+                if (c == ']' || c == '}')
+                    return close(c);
+                state = state == NAME_OR_END ? NAME_EXPECTED : VALUE;
+                break;
+        }
+        if (c < 0) {
+            if (state != TOP)
+                throw new IORuntimeException("Unexpected end of JSON at " + in.readPosition());
+            tokenOffset = in.readPosition();
+            tokenLength = 0;
+            return token = Token.END;
+        }
+        if (state == NAME_EXPECTED) {
+            if (c != '"')
+                throw unexpected(c);
+            readString();
+            if (skipWhitespace() != ':')
+                throw unexpected(in.peekUnsignedByte());
+            in.readSkip(1);
+            state = VALUE;
+            return token = Token.NAME;
+        }
+        return value(c);
+    }
+
+    /**
+     * @return the last token read, or <code>null</code> before the first.
+     */
+    @Nullable
+    public Token token() {
+        return token;
+    }
+
+    /**
+     * @return the offset in the Bytes of the text of the last token, inside the quotes of a string or name.
+     */
+    public long tokenOffset() {
+        return tokenOffset;
+    }
+
+    /**
+     * @return the length in bytes of the text of the last token, still UTF-8 encoded and escaped.
+     */
+    public int tokenLength() {
+        return tokenLength;
+    }
+
+    /**
+     * @return whether the last string or name has any escapes, so it can't be used as it is.
+     */
+    public boolean hasEscapes() {
+        return escaped;
+    }
+
+    /**
+     * @return the number of objects and arrays the tokenizer is inside.
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * Parse the last number token in place as with {@link ByteStringParser#parseLong()}.
+     */
+    public long longValue() throws IllegalStateException {
+        checkToken(Token.NUMBER);
+        long position = in.readPosition();
+        long limit = in.readLimit();
+        try {
+            in.readPosition(tokenOffset);
+            in.readLimit(tokenOffset + tokenLength);
+            return in.parseLong();
+        } finally {
+            in.readLimit(limit);
+            in.readPosition(position);
+        }
+    }
+
+    /**
+     * Parse the last number token in place as with {@link ByteStringParser#parseDouble()}.
+     */
+    public double doubleValue() throws IllegalStateException {
+        checkToken(Token.NUMBER);
+        long position = in.readPosition();
+        long limit = in.readLimit();
+        try {
+            in.readPosition(tokenOffset);
+            in.readLimit(tokenOffset + tokenLength);
+            return in.parseDouble();
+        } finally {
+            in.readLimit(limit);
+            in.readPosition(position);
+        }
+    }
+
+    /**
+     * Decode the last string or name, including any escapes, into a StringBuilder which is cleared first.
+     */
+    public void stringValue(@NotNull StringBuilder sb) throws IORuntimeException, IllegalStateException {
+        checkText();
+        sb.setLength(0);
+        if (!escaped) {
+            if (tokenLength > 0)
+                BytesInternal.parseUtf8(in, tokenOffset, sb, tokenLength);
+            return;
+        }
+        long end = tokenOffset + tokenLength;
+        try {
+            for (long i = tokenOffset; i < end; ) {
+                long escape = ByteScanner.indexOf(in, i, end, (byte) '\\');
+                if (escape < 0)
+                    escape = end;
+                if (escape > i)
+                    BytesInternal.parseUtf82(in, i, escape, sb, (int) (escape - i));
+                if (escape == end)
+                    break;
+                i = unescape(escape, end, sb);
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * @return whether the last string or name is the same text as <code>cs</code>, without creating any objects.
+     */
+    public boolean textEquals(@NotNull CharSequence cs) throws IORuntimeException, IllegalStateException {
+        checkText();
+        if (!escaped && tokenLength == cs.length()) {
+            int i = 0;
+            for (; i < tokenLength; i++) {
+                byte b = in.readByte(tokenOffset + i);
+                if (b < 0)
+                    break;
+                if (b != cs.charAt(i))
+                    return false;
+            }
+            if (i == tokenLength)
+                return true;
+        }
+        stringValue(text);
+        if (text.length() != cs.length())
+            return false;
+        for (int i = 0; i < text.length(); i++)
+            if (text.charAt(i) != cs.charAt(i))
+                return false;
+        return true;
+    }
+
+    /**
+     * Skip the value of the last name, or the rest of the object or array just started.
+     */
+    public void skipValue() throws IORuntimeException {
+        if (token == Token.NAME)
+            next();
+        if (token == Token.START_OBJECT || token == Token.START_ARRAY) {
+            int outer = depth - 1;
+            while (depth > outer)
+                next();
+        }
+    }
+
+    @NotNull
+    private Token value(int c) throws IORuntimeException {
+        tokenOffset = in.readPosition();
+        tokenLength = 1;
+        switch (c) {
+            case '{':
+                return start(OBJECT, NAME_OR_END, Token.START_OBJECT);
+            case '[':
+                return start(ARRAY, VALUE_OR_END, Token.START_ARRAY);
+            case '"':
+                readString();
+                return endValue(Token.STRING);
+            case 't':
+                return literal("true", Token.TRUE);
+            case 'f':
+                return literal("false", Token.FALSE);
+            case 'n':
+                return literal("null", Token.NULL);
+            default:
+                if (c != '-' && (c < '0' || c > '9'))
+                    throw unexpected(c);
+                readNumber();
+                return endValue(Token.NUMBER);
+        }
+    }
+
+    @NotNull
+    private Token start(byte container, int next, @NotNull Token startToken) {
+        if (depth == containers.length)
+            containers = Arrays.copyOf(containers, depth * 2);
+        containers[depth++] = container;
+        in.readSkip(1);
+        state = next;
+        return token = startToken;
+    }
+
+    @NotNull
+    private Token close(int c) throws IORuntimeException {
+        if (c < 0)
+            throw new IORuntimeException("Unexpected end of JSON at " + in.readPosition());
+        if (c != (containers[depth - 1] == OBJECT ? '}' : ']'))
+            throw unexpected(c);
+        tokenOffset = in.readPosition();
+        tokenLength = 1;
+        in.readSkip(1);
+        depth--;
+        return endValue(c == '}' ? Token.END_OBJECT : Token.END_ARRAY);
+    }
+
+    @NotNull
+    private Token endValue(@NotNull Token valueToken) {
+        state = depth == 0 ? TOP : COMMA_OR_END;
+        return token = valueToken;
+    }
+
+    @NotNull
+    private Token literal(@NotNull String literal, @NotNull Token literalToken) throws IORuntimeException {
+        long pos = in.readPosition();
+        if (in.readLimit() - pos < literal.length())
+            throw unexpected(in.peekUnsignedByte());
+        for (int i = 0; i < literal.length(); i++)
+            if (in.readByte(pos + i) != literal.charAt(i))
+                throw new IORuntimeException("Expected " + literal + " at " + pos);
+        tokenLength = literal.length();
+        in.readSkip(literal.length());
+        return endValue(literalToken);
+    }
+
+    /**
+     * Find the closing quote, a word at a time between escapes.
+     */
+    private void readString() throws IORuntimeException {
+        long start = in.readPosition() + 1;
+        long limit = in.readLimit();
+        escaped = false;
+        for (long i = start; ; ) {
+            long end = i < limit ? ByteScanner.indexOfAny(in, i, limit, STRING_STOPS) : -1;
+            if (end < 0 || end + 1 >= limit && in.readByte(end) != '"')
+                throw new IORuntimeException("Unterminated string at " + (start - 1));
+            if (in.readByte(end) == '"') {
+                tokenOffset = start;
+                tokenLength = (int) (end - start);
+                in.readPosition(end + 1);
+                return;
+            }
+            escaped = true;
+            i = end + 2;
+        }
+    }
+
+    private void readNumber() {
+        long start = in.readPosition();
+        long limit = in.readLimit();
+        long pos = start;
+        for (; pos < limit; pos++) {
+            int c = in.readUnsignedByte(pos);
+            if ((c < '0' || c > '9') && c != '-' && c != '+' && c != '.' && c != 'e' && c != 'E')
+                break;
+        }
+        tokenOffset = start;
+        tokenLength = (int) (pos - start);
+        in.readPosition(pos);
+    }
+
+    /**
+     * @return the offset after the escape
+     */
+    private long unescape(long pos, long end, @NotNull StringBuilder sb) throws IORuntimeException {
+        if (pos + 1 >= end)
+            throw new IORuntimeException("Incomplete escape at " + pos);
+        int c = in.readUnsignedByte(pos + 1);
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                sb.append((char) c);
+                break;
+            case 'b':
+                sb.append('\b');
+                break;
+            case 'f':
+                sb.append('\f');
+                break;
+            case 'n':
+                sb.append('\n');
+                break;
+            case 'r':
+                sb.append('\r');
+                break;
+            case 't':
+                sb.append('\t');
+                break;
+            case 'u': {
+                if (pos + 6 > end)
+                    throw new IORuntimeException("Incomplete escape at " + pos);
+                int ch = 0;
+                for (int i = 2; i < 6; i++) {
+                    int digit = Character.digit(in.readUnsignedByte(pos + i), 16);
+                    if (digit < 0)
+                        throw new IORuntimeException("Invalid escape at " + pos);
+                    ch = (ch << 4) | digit;
+                }
+                // a surrogate pair is two escapes which become two chars.
+                sb.append((char) ch);
+                return pos + 6;
+            }
+            default:
+                throw new IORuntimeException("Invalid escape at " + pos);
+        }
+        return pos + 2;
+    }
+
+    /**
+     * Skip JSON whitespace, checking for runs of spaces a word at a time.
+     *
+     * @return the next byte, not consumed, or -1 at the readLimit()
+     */
+    private int skipWhitespace() throws IORuntimeException {
+        long pos = in.readPosition();
+        long limit = in.readLimit();
+        while (pos < limit) {
+            int c = in.readUnsignedByte(pos);
+            if (c > ' ') {
+                in.readPosition(pos);
+                return c;
+            }
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+                throw unexpected(c, pos);
+            pos++;
+            while (limit - pos >= 8) {
+                long notSpaces = ~ByteScanner.equalTo(ByteScanner.readWord(in, pos), SPACES) & ByteScanner.HIGH;
+                if (notSpaces != 0) {
+                    pos += Long.numberOfTrailingZeros(notSpaces) >>> 3;
+                    break;
+                }
+                pos += 8;
+            }
+        }
+        in.readPosition(pos);
+        return -1;
+    }
+
+    private void checkToken(@NotNull Token expected) throws IllegalStateException {
+        if (token != expected)
+            throw new IllegalStateException("Expected " + expected + " but was " + token);
+    }
+
+    private void checkText() throws IllegalStateException {
+        if (token != Token.STRING && token != Token.NAME)
+            throw new IllegalStateException("Not a string or name: " + token);
+    }
+
+    @NotNull
+    private IORuntimeException unexpected(int c) {
+        return unexpected(c, in.readPosition());
+    }
+
+    @NotNull
+    private IORuntimeException unexpected(int c, long pos) {
+        return c < 0
+                ? new IORuntimeException("Unexpected end of JSON at " + pos)
+                : new IORuntimeException("Unexpected '" + (char) c + "' at " + pos);
+    }
+}
@@ -33,6 +33,15 @@ public class MappedBytesStore extends NativeBytesStore<Void> {
         this.safeLimit = start + safeCapacity;
     }
 
+    /**
+     * Memory which isn't mapped, released with the deallocator, but accessed the same way as a chunk of a file.
+     */
+    MappedBytesStore(long start, long address, long capacity, long safeCapacity, @NotNull Runnable deallocator) {
+        super(address, start + capacity, deallocator, false);
+        this.start = start;
+        this.safeLimit = start + safeCapacity;
+    }
+
     @NotNull
     @Override
     public VanillaBytes<Void> bytesForWrite() throws IllegalStateException {
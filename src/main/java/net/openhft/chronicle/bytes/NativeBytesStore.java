@@ -734,25 +734,7 @@ public class NativeBytesStore<Underlying>
     }
 
     public int byteCheckSum(long position, long limit) {
-        @Nullable Memory memory = this.memory;
-        assert memory != null;
-        int b = 0;
-        long ptr = address + position;
-        long end = address + limit;
-        for (; ptr < end - 7; ptr += 8) {
-            b += memory.readByte(ptr)
-                    + memory.readByte(ptr + 1)
-                    + memory.readByte(ptr + 2)
-                    + memory.readByte(ptr + 3)
-                    + memory.readByte(ptr + 4)
-                    + memory.readByte(ptr + 5)
-                    + memory.readByte(ptr + 6)
-                    + memory.readByte(ptr + 7);
-        }
-        for (; ptr < end; ptr++) {
-            b += memory.readByte(ptr);
-        }
-        return b & 0xFF;
+        return ByteScanner.byteCheckSum(address + position, limit - position);
     }
 
     @Override
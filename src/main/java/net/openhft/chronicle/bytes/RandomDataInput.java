@@ -520,6 +520,20 @@ public interface RandomDataInput extends RandomCommon {
         return BytesInternal.compareUtf8(this, offset, other);
     }
 
+    /**
+     * Checks the bytes are well formed UTF-8 without decoding them, skipping ASCII a word at a time.
+     * Overlong encodings, surrogates, code points above U+10FFFF and sequences cut off by the end of the
+     * range are not valid.
+     *
+     * @param offset of the first byte
+     * @param length the number of bytes to check
+     * @return {@code true} if the bytes are well formed UTF-8
+     * @throws BufferUnderflowException if the range is not between the start() and the readLimit()
+     */
+    default boolean isValidUtf8(long offset, long length) throws BufferUnderflowException {
+        return BytesInternal.isValidUtf8(this, offset, length);
+    }
+
     @NotNull
     default byte[] toByteArray() throws IllegalArgumentException {
         return BytesInternal.toByteArray(this);
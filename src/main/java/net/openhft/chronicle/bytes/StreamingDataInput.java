@@ -128,6 +128,36 @@ public interface StreamingDataInput<S extends StreamingDataInput<S>> extends Str
         return BytesInternal.readStopBitDouble(this);
     }
 
+    /**
+     * Read values written by {@link StreamingDataOutput#writeStopBitArray(long[], int, int)} into
+     * values[from] to values[to - 1].
+     */
+    default void readStopBitArray(@NotNull long[] values, int from, int to)
+            throws IORuntimeException, IndexOutOfBoundsException {
+        BytesInternal.readStopBitArray(this, values, from, to, false, false);
+    }
+
+    default void readStopBitArray(@NotNull int[] values, int from, int to)
+            throws IORuntimeException, IndexOutOfBoundsException {
+        BytesInternal.readStopBitArray(this, values, from, to);
+    }
+
+    /**
+     * Read values written by {@link StreamingDataOutput#writeZigZagStopBitArray(long[], int, int)}
+     */
+    default void readZigZagStopBitArray(@NotNull long[] values, int from, int to)
+            throws IORuntimeException, IndexOutOfBoundsException {
+        BytesInternal.readStopBitArray(this, values, from, to, true, false);
+    }
+
+    /**
+     * Read values written by {@link StreamingDataOutput#writeDeltaStopBitArray(long[], int, int)}
+     */
+    default void readDeltaStopBitArray(@NotNull long[] values, int from, int to)
+            throws IORuntimeException, IndexOutOfBoundsException {
+        BytesInternal.readStopBitArray(this, values, from, to, true, true);
+    }
+
     default double readStopBitDecimal() throws BufferOverflowException {
         long value = readStopBit();
         int scale = (int) (Math.abs(value) % 10);
@@ -257,6 +287,22 @@ public interface StreamingDataInput<S extends StreamingDataInput<S>> extends Str
         return true;
     }
 
+    /**
+     * The same as readUtf8(sb) except the bytes are checked to be well formed UTF-8, as
+     * {@link RandomDataInput#isValidUtf8(long, long)} does, before any are decoded.
+     * The bytes are checked in place so this is only for inputs which are also a RandomDataInput, such as Bytes.
+     * A surrogate pair written as two three byte sequences, as writeUtf8 writes a char outside the BMP, is accepted
+     * as well as the four byte form, but a surrogate on its own is not.
+     *
+     * @param sb to copy chars to
+     * @return <code>true</code> if there was a String, or <code>false</code> if it was <code>null</code>
+     * @throws UTFDataFormatRuntimeException if the String isn't well formed, leaving the readPosition() at its length
+     */
+    default <ACS extends Appendable & CharSequence> boolean readUtf8Strict(@NotNull ACS sb)
+            throws IORuntimeException, IllegalArgumentException, BufferUnderflowException {
+        return BytesInternal.readUtf8Strict(this, sb);
+    }
+
     @Deprecated
     default <ACS extends Appendable & CharSequence> boolean readUTFΔ(@NotNull ACS sb)
             throws IORuntimeException, IllegalArgumentException, BufferUnderflowException {
@@ -277,6 +323,26 @@ public interface StreamingDataInput<S extends StreamingDataInput<S>> extends Str
         return true;
     }
 
+    /**
+     * Point <code>cs</code> at the next 8-bit String, written with write8bit, without copying it.
+     * The readPosition() moves past the String, which must not be overwritten while <code>cs</code> is used.
+     *
+     * @return <code>true</code> if there was a String, or <code>false</code> if it was <code>null</code>
+     */
+    default boolean read8bit(@NotNull Bit8CharSequence cs)
+            throws IORuntimeException, BufferUnderflowException {
+        cs.clear();
+        if (readRemaining() <= 0)
+            return false;
+        long len0 = BytesInternal.readStopBit(this);
+        if (len0 == -1)
+            return false;
+        int len = Maths.toUInt31(len0);
+        cs.set((BytesStore) this, readPosition(), len);
+        readSkip(len);
+        return true;
+    }
+
     default <ACS extends Appendable & CharSequence> boolean read8bit(@NotNull ACS sb)
             throws IORuntimeException, IllegalArgumentException, BufferUnderflowException {
         AppendableUtil.setLength(sb, 0);
@@ -69,7 +69,8 @@ public interface StreamingDataOutput<S extends StreamingDataOutput<S>> extends S
     }
 
     /**
-     * Write a stop bit encoded long
+     * Write a stop bit encoded long. Only the bytes of the encoding are written, so any bytes after them are left
+     * unchanged, e.g. when a value is rewritten in place by moving the writePosition() back.
      *
      * @param x long to write
      * @return this.
@@ -92,6 +93,55 @@ public interface StreamingDataOutput<S extends StreamingDataOutput<S>> extends S
         return (S) this;
     }
 
+    /**
+     * Write values[from] to values[to - 1] each stop bit encoded. The number of values isn't written.
+     * <p>
+     * For direct Bytes, the bounds are checked once per batch of values rather than for every byte.
+     *
+     * @param values to write
+     * @param from   the first index, inclusive
+     * @param to     the last index, exclusive
+     * @return this.
+     */
+    @NotNull
+    default S writeStopBitArray(@NotNull long[] values, int from, int to)
+            throws BufferOverflowException, IndexOutOfBoundsException {
+        BytesInternal.writeStopBitArray(this, values, from, to, false, false);
+        return (S) this;
+    }
+
+    @NotNull
+    default S writeStopBitArray(@NotNull int[] values, int from, int to)
+            throws BufferOverflowException, IndexOutOfBoundsException {
+        BytesInternal.writeStopBitArray(this, values, from, to);
+        return (S) this;
+    }
+
+    /**
+     * Write values zig zag and stop bit encoded so values close to zero, including negative ones, take one byte.
+     *
+     * @see #writeStopBitArray(long[], int, int)
+     */
+    @NotNull
+    default S writeZigZagStopBitArray(@NotNull long[] values, int from, int to)
+            throws BufferOverflowException, IndexOutOfBoundsException {
+        BytesInternal.writeStopBitArray(this, values, from, to, true, false);
+        return (S) this;
+    }
+
+    /**
+     * Write the difference of each value from the one before, the first from 0, zig zag and stop bit encoded.
+     * This suits sorted values such as sequence numbers and timestamps.
+     *
+     * @see #writeStopBitArray(long[], int, int)
+     */
+    @NotNull
+    default S writeDeltaStopBitArray(@NotNull long[] values, int from, int to)
+            throws BufferOverflowException, IndexOutOfBoundsException {
+        BytesInternal.writeStopBitArray(this, values, from, to, true, true);
+        return (S) this;
+    }
+
     @NotNull
     default S writeStopBitDecimal(double d) throws BufferOverflowException {
         boolean negative = d < 0;
@@ -277,6 +327,10 @@ public interface StreamingDataOutput<S extends StreamingDataOutput<S>> extends S
     @NotNull
     S writeLong(long i64) throws BufferOverflowException;
 
+    default S rawWriteLong(long i64) throws BufferOverflowException {
+        return writeLong(i64);
+    }
+
     @NotNull
     S writeLongAdv(long i64, int advance) throws BufferOverflowException;
 
@@ -455,10 +509,17 @@ public interface StreamingDataOutput<S extends StreamingDataOutput<S>> extends S
     default S appendUtf8(byte[] bytes, int offset, int length, byte coder)
             throws BufferOverflowException, IllegalArgumentException {
         if (coder == JAVA9_STRING_CODER_LATIN) {
-            for (int i = 0; i < length; i++) {
-                byte b = bytes[offset + i];
-                int b2 = (b & 0xFF);
-                BytesInternal.appendUtf8Char(this, b2);
+            for (int i = 0; i < length; ) {
+                // ASCII in Latin-1 is already UTF-8 so copy it out a word at a time.
+                if (i <= length - 8) {
+                    long word = ByteScanner.readLong(bytes, offset + i);
+                    if ((word & ByteScanner.HIGH) == 0) {
+                        rawWriteLong(word);
+                        i += 8;
+                        continue;
+                    }
+                }
+                BytesInternal.appendUtf8Char(this, bytes[offset + i++] & 0xFF);
             }
         } else {
             assert coder == JAVA9_STRING_CODER_UTF16;
@@ -498,6 +498,17 @@ public class VanillaBytes<Underlying> extends AbstractBytes<Underlying>
         }
     }
 
+    @NotNull
+    @Override
+    public Bytes<Underlying> zeroOut(long start, long end) {
+        // when the range is already allocated, let the store clear it in bulk rather than a long at a time.
+        if (start < end && start >= bytesStore.start() && end <= bytesStore.capacity()) {
+            bytesStore.zeroOut(start, end);
+            return this;
+        }
+        return super.zeroOut(start, end);
+    }
+
     public void read8Bit(char[] chars, int length) {
         long position = readPosition();
         @NotNull NativeBytesStore nbs = (NativeBytesStore) bytesStore();
@@ -506,22 +517,8 @@ public class VanillaBytes<Underlying> extends AbstractBytes<Underlying>
 
     @Override
     public int byteCheckSum(int start, int end) throws IORuntimeException {
-        byte b = 0;
         @Nullable NativeBytesStore bytesStore = (NativeBytesStore) bytesStore();
-        @Nullable Memory memory = bytesStore.memory;
-        assert memory != null;
-        long addr = bytesStore.addressForRead(start);
-        int i = 0, len = end - start;
-        for (; i < len - 3; i += 4) {
-            b += memory.readByte(addr + i)
-                    + memory.readByte(addr + i + 1)
-                    + memory.readByte(addr + i + 2)
-                    + memory.readByte(addr + i + 3);
-        }
-        for (; i < len; i++) {
-            b += memory.readByte(addr + i);
-        }
-        return b & 0xFF;
+        return ByteScanner.byteCheckSum(bytesStore.addressForRead(start), end - start);
     }
 
     @NotNull
@@ -23,8 +23,6 @@ import net.openhft.chronicle.core.io.IORuntimeException;
 import org.jetbrains.annotations.NotNull;
 
 import java.nio.BufferUnderflowException;
-import java.util.Objects;
-import java.util.stream.Stream;
 
 /**
  * This cache only gaurentees it will provide a String which matches the decoded bytes.
@@ -34,20 +32,55 @@ import java.util.stream.Stream;
  * though the contents should always be the same.
  * <p>
  * While not technically thread safe, it should still behave correctly.
+ * The table is published as one object so a thread sees the entries with the mask they were placed with,
+ * even while an adaptive interner resizes.
+ * <p>
+ * The statistics are plain fields which are not updated atomically, so when an interner is shared between
+ * threads some updates can be lost and they should be treated as approximate.
  * @author peter.lawrey
  */
 @SuppressWarnings({"rawtypes", "unchecked"})
 public abstract class AbstractInterner<T> {
+    /**
+     * The table the interner was created with, which a fixed size interner always uses.
+     *
+     * @deprecated an adaptive interner replaces this table as it grows, so these no longer hold every entry.
+     */
+    @Deprecated
     @NotNull
     protected final InternerEntry<T>[] entries;
+    /**
+     * @deprecated the mask and shift of the table the interner was created with, see {@link #entries}
+     */
+    @Deprecated
     protected final int mask, shift;
+    @NotNull
+    private volatile Table<T> table;
     protected boolean toggle = false;
+    private final int maxCapacity;
+    private int valueCount = 0;
+    private long hits, misses, evictions, collisions, resizes;
+    private int windowLookups, windowEvictions;
 
     public AbstractInterner(int capacity) throws IllegalArgumentException {
+        this(capacity, capacity);
+    }
+
+    /**
+     * Create an adaptive interner which starts with <code>capacity</code> entries and doubles the table
+     * whenever more than a quarter of the lookups in a window evict an existing entry,
+     * until it reaches <code>maxCapacity</code> entries.
+     *
+     * @param capacity    initial number of entries, rounded up to a power of 2.
+     * @param maxCapacity the most entries the table will grow to, rounded up to a power of 2.
+     */
+    public AbstractInterner(int capacity, int maxCapacity) throws IllegalArgumentException {
         int n = Maths.nextPower2(capacity, 128);
         shift = Maths.intLog2(n);
         entries = new InternerEntry[n];
         mask = n - 1;
+        table = new Table<>(entries, mask, shift);
+        this.maxCapacity = Math.max(n, Maths.nextPower2(maxCapacity, 128));
     }
 
     private static int hash32(@NotNull BytesStore bs, int length) {
@@ -71,28 +104,90 @@ public abstract class AbstractInterner<T> {
 
     public T intern(@NotNull BytesStore cs, int length)
             throws IllegalArgumentException, IORuntimeException, BufferUnderflowException {
-        if (length > entries.length)
+        // take a local copy as the table can be replaced when adaptive.
+        Table<T> table = this.table;
+        InternerEntry<T>[] entries = table.entries;
+        if (length > entries.length) {
+            // too long to cache
+            misses++;
             return getValue(cs, length);
-        // TODO This needs to be reviewd.
-//        UnsafeMemory.UNSAFE.loadFence();
+        }
+        boolean adaptive = entries.length < maxCapacity;
+        if (adaptive)
+            windowLookups++;
         int hash = hash32(cs, length);
-        int h = hash & mask;
+        int h = hash & table.mask;
         InternerEntry<T> s = entries[h];
-        if (s != null && s.bytes.length() == length && s.bytes.equalBytes(cs, length))
+        if (s != null && s.bytes.length() == length && s.bytes.equalBytes(cs, length)) {
+            hits++;
             return s.t;
-        int h2 = (hash >> shift) & mask;
+        }
+        if (s != null)
+            collisions++;
+        int h2 = (hash >> table.shift) & table.mask;
         InternerEntry<T> s2 = entries[h2];
-        if (s2 != null && s2.bytes.length() == length && s2.bytes.equalBytes(cs, length))
+        if (s2 != null && s2.bytes.length() == length && s2.bytes.equalBytes(cs, length)) {
+            hits++;
             return s2.t;
+        }
+        misses++;
         @NotNull T t = getValue(cs, length);
         @NotNull final byte[] bytes = new byte[length];
         @NotNull BytesStore bs = BytesStore.wrap(bytes);
         cs.read(cs.readPosition(), bytes, 0, length);
-        entries[s == null || (s2 != null && toggle()) ? h : h2] = new InternerEntry<>(bs, t);
-//        UnsafeMemory.UNSAFE.storeFence();
+        int index = s == null || (s2 != null && toggle()) ? h : h2;
+        boolean evicted = entries[index] != null;
+        entries[index] = new InternerEntry<>(bs, hash, t);
+        if (evicted)
+            evictions++;
+        else
+            valueCount++;
+        if (adaptive)
+            checkResize(entries.length, evicted);
         return t;
     }
 
+    private void checkResize(int length, boolean evicted) {
+        if (evicted)
+            windowEvictions++;
+        if (windowLookups < length)
+            return;
+        if (windowEvictions > windowLookups >> 2)
+            resize(length << 1);
+        windowLookups = windowEvictions = 0;
+    }
+
+    private void resize(int n) {
+        Table<T> table = this.table;
+        // another thread has already resized.
+        if (table.entries.length >= n)
+            return;
+        @NotNull Table<T> table2 = new Table<>(n);
+        InternerEntry<T>[] entries2 = table2.entries;
+        int count = 0, dropped = 0;
+        for (InternerEntry<T> e : table.entries) {
+            if (e == null)
+                continue;
+            int h = e.hash & table2.mask;
+            if (entries2[h] == null) {
+                entries2[h] = e;
+                count++;
+                continue;
+            }
+            int h2 = (e.hash >> table2.shift) & table2.mask;
+            if (entries2[h2] == null) {
+                entries2[h2] = e;
+                count++;
+            } else {
+                dropped++;
+            }
+        }
+        valueCount = count;
+        evictions += dropped;
+        this.table = table2;
+        resizes++;
+    }
+
     @NotNull
     protected abstract T getValue(BytesStore bs, int length) throws IORuntimeException;
 
@@ -101,15 +196,79 @@ public abstract class AbstractInterner<T> {
     }
 
     public int valueCount() {
-        return (int) Stream.of(entries).filter(Objects::nonNull).count();
+        return valueCount;
+    }
+
+    /**
+     * @return the number of entries the table can currently hold.
+     */
+    public int capacity() {
+        return table.entries.length;
+    }
+
+    /**
+     * @return the number of lookups which found an existing value.
+     */
+    public long hitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups which had to create a new value, including those too long to cache.
+     */
+    public long missCount() {
+        return misses;
+    }
+
+    /**
+     * @return the number of entries replaced by a newer value or dropped when the table was resized.
+     */
+    public long evictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of lookups where the first slot held a different key.
+     */
+    public long collisionCount() {
+        return collisions;
+    }
+
+    /**
+     * @return the number of times an adaptive interner has doubled its table.
+     */
+    public long resizeCount() {
+        return resizes;
+    }
+
+    public void resetStatistics() {
+        hits = misses = evictions = collisions = resizes = 0;
+    }
+
+    static final class Table<T> {
+        @NotNull
+        final InternerEntry<T>[] entries;
+        final int mask, shift;
+
+        Table(int n) {
+            this(new InternerEntry[n], n - 1, Maths.intLog2(n));
+        }
+
+        Table(@NotNull InternerEntry<T>[] entries, int mask, int shift) {
+            this.entries = entries;
+            this.mask = mask;
+            this.shift = shift;
+        }
     }
 
     static class InternerEntry<T> {
         final BytesStore bytes;
+        final int hash;
         final T t;
 
-        InternerEntry(BytesStore bytes, T t) {
+        InternerEntry(BytesStore bytes, int hash, T t) {
             this.bytes = bytes;
+            this.hash = hash;
             this.t = t;
         }
     }
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes.util;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.bytes.BytesUtil;
+import net.openhft.chronicle.bytes.NativeBytesStore;
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.nio.BufferUnderflowException;
+
+/**
+ * An interner like {@link AbstractInterner} which keeps the hash, length and bytes of every key in
+ * one contiguous off heap slab rather than a <code>byte[]</code> and <code>HeapBytesStore</code> per entry.
+ * Only the values are held on the heap.
+ * <p>
+ * Each slot is a fixed size of a 16 byte header (version, hash and length) plus <code>maxKeyLength</code> bytes
+ * rounded up to a multiple of 8. Longer keys are not cached.
+ * <p>
+ * The key and value of a slot are written while its version is odd, and a lookup which sees the version
+ * change or odd is treated as a miss, so a concurrent caller never gets the value of a different key.
+ * When two callers update the same slot at once, only one value is cached. The statistics are not
+ * updated atomically so they are approximate when shared between threads.
+ * The slab must be released with {@link #close()}.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public abstract class AbstractNativeInterner<T> implements Closeable {
+    private static final int VERSION = 0, HASH = 4, LENGTH = 8, HEADER = 16;
+
+    @NotNull
+    protected final T[] values;
+    protected final int mask, shift;
+    protected final int maxKeyLength;
+    protected boolean toggle = false;
+    private final int slotSize;
+    private NativeBytesStore<Void> store;
+    private int valueCount = 0;
+    private long hits, misses, evictions;
+
+    public AbstractNativeInterner(int capacity, int maxKeyLength) throws IllegalArgumentException {
+        if (maxKeyLength < 0)
+            throw new IllegalArgumentException("maxKeyLength: " + maxKeyLength);
+        int n = Maths.nextPower2(capacity, 128);
+        shift = Maths.intLog2(n);
+        values = (T[]) new Object[n];
+        mask = n - 1;
+        this.maxKeyLength = maxKeyLength;
+        slotSize = HEADER + ((maxKeyLength + 7) & ~7);
+        store = NativeBytesStore.nativeStoreWithFixedCapacity((long) n * slotSize);
+    }
+
+    public T intern(@NotNull Bytes cs)
+            throws IllegalArgumentException, IORuntimeException, BufferUnderflowException, IllegalStateException {
+        return intern((BytesStore) cs, (int) cs.readRemaining());
+    }
+
+    public T intern(@NotNull BytesStore cs)
+            throws IllegalArgumentException, IORuntimeException, BufferUnderflowException, IllegalStateException {
+        return intern(cs, (int) cs.readRemaining());
+    }
+
+    public T intern(@NotNull BytesStore cs, int length)
+            throws IllegalArgumentException, IORuntimeException, BufferUnderflowException, IllegalStateException {
+        NativeBytesStore<Void> store = this.store;
+        if (store == null)
+            throw new IllegalStateException("Closed");
+        if (length > maxKeyLength) {
+            // too long to cache
+            misses++;
+            return getValue(cs, length);
+        }
+        long position = cs.readPosition();
+        int hash = cs.fastHash(position, length);
+        int h = hash & mask;
+        T t = lookup(store, h, hash, cs, position, length);
+        if (t != null) {
+            hits++;
+            return t;
+        }
+        int h2 = (hash >> shift) & mask;
+        T t2 = lookup(store, h2, hash, cs, position, length);
+        if (t2 != null) {
+            hits++;
+            return t2;
+        }
+        misses++;
+        @NotNull T value = getValue(cs, length);
+        int index = values[h] == null || (values[h2] != null && toggle()) ? h : h2;
+        long offset = (long) index * slotSize;
+        int version = store.readVolatileInt(offset + VERSION);
+        // another thread is updating this slot, don't cache this value.
+        if ((version & 1) != 0 || !store.compareAndSwapInt(offset + VERSION, version, version + 1))
+            return value;
+        if (values[index] == null)
+            valueCount++;
+        else
+            evictions++;
+        store.writeInt(offset + HASH, hash);
+        store.writeInt(offset + LENGTH, length);
+        store.write(offset + HEADER, cs, position, length);
+        values[index] = value;
+        store.writeOrderedInt(offset + VERSION, version + 2);
+        return value;
+    }
+
+    /**
+     * @return the value in the slot if its key matches, or <code>null</code> if it doesn't or the slot is being updated.
+     */
+    private T lookup(@NotNull NativeBytesStore<Void> store, int index, int hash, @NotNull BytesStore cs, long position, int length)
+            throws BufferUnderflowException {
+        long offset = (long) index * slotSize;
+        int version = store.readVolatileInt(offset + VERSION);
+        if ((version & 1) != 0)
+            return null;
+        T t = values[index];
+        if (t == null
+                || store.readInt(offset + HASH) != hash
+                || store.readInt(offset + LENGTH) != length
+                || !BytesUtil.bytesEqual(store, offset + HEADER, cs, position, length))
+            return null;
+        // the key and value must be read before the version is checked again.
+        OS.memory().loadFence();
+        return store.readInt(offset + VERSION) == version ? t : null;
+    }
+
+    @NotNull
+    protected abstract T getValue(BytesStore bs, int length) throws IORuntimeException;
+
+    protected boolean toggle() {
+        return toggle = !toggle;
+    }
+
+    public int valueCount() {
+        return valueCount;
+    }
+
+    /**
+     * @return the number of lookups which found an existing value.
+     */
+    public long hitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups which had to create a new value, including those too long to cache.
+     */
+    public long missCount() {
+        return misses;
+    }
+
+    /**
+     * @return the number of entries replaced by a newer value.
+     */
+    public long evictionCount() {
+        return evictions;
+    }
+
+    public void resetStatistics() {
+        hits = misses = evictions = 0;
+    }
+
+    @Override
+    public void close() {
+        if (store != null) {
+            store.release();
+            store = null;
+        }
+    }
+}
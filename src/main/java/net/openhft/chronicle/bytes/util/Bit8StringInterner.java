@@ -31,6 +31,10 @@ public class Bit8StringInterner extends AbstractInterner<String> {
         super(capacity);
     }
 
+    public Bit8StringInterner(int capacity, int maxCapacity) throws IllegalArgumentException {
+        super(capacity, maxCapacity);
+    }
+
     @SuppressWarnings("rawtypes")
     @Override
     @NotNull
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes.util;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.RandomDataInput;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.BufferUnderflowException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Compresses large data as a frame of independently compressed blocks, using many threads, with an index
+ * so any block can be uncompressed on its own.
+ * <p>
+ * A frame is laid out as
+ * <pre>
+ * int magic, int blockSize, byte nameLength, the name of the compression in ASCII
+ * compressed block 0, compressed block 1, ...
+ * long offset of each block and of the end of the last block, relative to the start of the frame
+ * long indexOffset, long uncompressedLength, int blockCount, int magic
+ * </pre>
+ * All numbers are in native byte order. Each block is copied from the source in the calling thread before
+ * being compressed in the pool, so the source, e.g. a MappedBytes, doesn't need to be thread safe.
+ */
+@SuppressWarnings("rawtypes")
+public class BlockCompression {
+    static final int MAGIC = 0x31464243; // "CBF1" in little endian
+    static final int HEADER_SIZE = 9;
+    static final int TRAILER_SIZE = 24;
+
+    @NotNull
+    private final Compression compression;
+    private final int blockSize;
+    @NotNull
+    private final ForkJoinPool pool;
+    private final int window;
+
+    public BlockCompression(@NotNull Compression compression, int blockSize) throws IllegalArgumentException {
+        this(compression, blockSize, ForkJoinPool.commonPool());
+    }
+
+    public BlockCompression(@NotNull Compression compression, int blockSize, @NotNull ForkJoinPool pool)
+            throws IllegalArgumentException {
+        if (blockSize <= 0)
+            throw new IllegalArgumentException("blockSize: " + blockSize);
+        this.compression = compression;
+        this.blockSize = blockSize;
+        this.pool = pool;
+        // enough blocks in flight to keep every thread busy while the results are written in order.
+        this.window = pool.getParallelism() * 2;
+    }
+
+    @NotNull
+    public Compression compression() {
+        return compression;
+    }
+
+    public int blockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Compress the bytes from the readPosition() to the readLimit() of <code>from</code> as a frame,
+     * without consuming them.
+     *
+     * @param from to compress
+     * @param to   to append the frame to
+     * @return the length of the frame
+     */
+    public long compress(@NotNull RandomDataInput from, @NotNull Bytes to) throws IORuntimeException {
+        long start = from.readPosition();
+        long length = from.readRemaining();
+        long blockCount = (length + blockSize - 1) / blockSize;
+        if (blockCount > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many blocks " + blockCount);
+        long frameStart = to.writePosition();
+        to.writeInt(MAGIC);
+        to.writeInt(blockSize);
+        String name = nameOf(compression);
+        to.writeUnsignedByte(name.length());
+        for (int i = 0; i < name.length(); i++)
+            to.writeByte((byte) name.charAt(i));
+        long[] offsets = new long[(int) blockCount + 1];
+        process((int) blockCount, to, offsets, frameStart,
+                (in, block) -> in.write(from, start + (long) block * blockSize, Math.min(blockSize, length - (long) block * blockSize)),
+                compression::compress);
+        offsets[(int) blockCount] = to.writePosition() - frameStart;
+        long indexOffset = to.writePosition() - frameStart;
+        for (long offset : offsets)
+            to.writeLong(offset);
+        to.writeLong(indexOffset);
+        to.writeLong(length);
+        to.writeInt((int) blockCount);
+        to.writeInt(MAGIC);
+        return to.writePosition() - frameStart;
+    }
+
+    /**
+     * Uncompress every block of the frame between the readPosition() and readLimit() of <code>frame</code>.
+     */
+    public void uncompress(@NotNull RandomDataInput frame, @NotNull Bytes to) throws IORuntimeException {
+        Index index = readIndex(frame);
+        process(index.blockCount(), to, null, 0,
+                (in, block) -> in.write(frame, index.frameStart + index.offsets[block], index.compressedLength(block)),
+                compression::uncompress);
+    }
+
+    /**
+     * Uncompress one block of a frame in the calling thread.
+     */
+    public void uncompressBlock(@NotNull RandomDataInput frame, @NotNull Index index, int block, @NotNull Bytes to)
+            throws IORuntimeException, IllegalArgumentException {
+        if (block < 0 || block >= index.blockCount())
+            throw new IllegalArgumentException("block: " + block);
+        Bytes in = Bytes.allocateElasticDirect(index.compressedLength(block));
+        try {
+            in.write(frame, index.frameStart + index.offsets[block], index.compressedLength(block));
+            compression.uncompress(in, to);
+        } finally {
+            in.release();
+        }
+    }
+
+    /**
+     * Read the index of the frame between the readPosition() and readLimit() of <code>frame</code>.
+     */
+    @NotNull
+    public static Index readIndex(@NotNull RandomDataInput frame) throws IORuntimeException {
+        long frameStart = frame.readPosition();
+        long frameEnd = frame.readLimit();
+        try {
+            if (frameEnd - frameStart < HEADER_SIZE + TRAILER_SIZE
+                    || frame.readInt(frameStart) != MAGIC
+                    || frame.readInt(frameEnd - 4) != MAGIC)
+                throw new IORuntimeException("Not a block compressed frame");
+            int blockSize = frame.readInt(frameStart + 4);
+            long indexOffset = frame.readLong(frameEnd - TRAILER_SIZE);
+            long length = frame.readLong(frameEnd - TRAILER_SIZE + 8);
+            int blockCount = frame.readInt(frameEnd - 8);
+            if (blockSize <= 0 || blockCount < 0
+                    || indexOffset + (blockCount + 1L) * 8 != frameEnd - TRAILER_SIZE - frameStart
+                    || (length + blockSize - 1) / blockSize != blockCount)
+                throw new IORuntimeException("Corrupt block compressed frame index");
+            int nameLength = frame.readUnsignedByte(frameStart + 8);
+            if (HEADER_SIZE + nameLength > indexOffset)
+                throw new IORuntimeException("Corrupt block compressed frame index");
+            StringBuilder name = new StringBuilder(nameLength);
+            for (int i = 0; i < nameLength; i++)
+                name.append((char) frame.readUnsignedByte(frameStart + HEADER_SIZE + i));
+            // the blocks follow the header and name in order, and the last offset is the end of the last block.
+            long[] offsets = new long[blockCount + 1];
+            long previous = HEADER_SIZE + nameLength;
+            for (int i = 0; i <= blockCount; i++) {
+                offsets[i] = frame.readLong(frameStart + indexOffset + i * 8L);
+                if (offsets[i] < previous)
+                    throw new IORuntimeException("Corrupt block compressed frame index");
+                previous = offsets[i];
+            }
+            if (offsets[blockCount] != indexOffset)
+                throw new IORuntimeException("Corrupt block compressed frame index");
+            return new Index(frameStart, blockSize, length, offsets, name.toString());
+
+        } catch (BufferUnderflowException e) {
+            throw new IORuntimeException(e);
+        }
+    }
+
+    @NotNull
+    static String nameOf(@NotNull Compression compression) {
+        if (compression instanceof Compressions)
+            return ((Compressions) compression).name().toLowerCase();
+        if (compression instanceof DictionaryCompression)
+            return "dict";
+        // other compressions must be given when reading.
+        return "";
+    }
+
+    @Nullable
+    static Compression forName(@NotNull String name) {
+        switch (name) {
+            case "binary":
+                return Compressions.Binary;
+            case "lzw":
+                return Compressions.LZW;
+            case "gzip":
+                return Compressions.GZIP;
+            case "lz4":
+                return Compressions.LZ4;
+            case "dict":
+                // the dictionary is chosen by the id in each block, but one must have been registered.
+                return DictionaryCompression.currentOrNull();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Run the blocks through the pool with a bounded number in flight, appending the results in order.
+     */
+    private void process(int blockCount, @NotNull Bytes to, long[] offsets, long frameStart,
+                         @NotNull BlockReader reader, @NotNull BlockProcessor processor) throws IORuntimeException {
+        int slots = Math.min(window, Math.max(1, blockCount));
+        Bytes[] ins = new Bytes[slots];
+        Bytes[] outs = new Bytes[slots];
+        ForkJoinTask[] tasks = new ForkJoinTask[slots];
+        try {
+            for (int i = 0; i < slots; i++) {
+                ins[i] = Bytes.allocateElasticDirect(blockSize);
+                outs[i] = Bytes.allocateElasticDirect(blockSize);
+            }
+            for (int block = 0; block < blockCount + slots; block++) {
+                int slot = block % slots;
+                if (tasks[slot] != null) {
+                    tasks[slot].join();
+                    tasks[slot] = null;
+                    if (offsets != null)
+                        offsets[block - slots] = to.writePosition() - frameStart;
+                    to.write(outs[slot]);
+                }
+                if (block >= blockCount)
+                    continue;
+                Bytes in = ins[slot].clear();
+                Bytes out = outs[slot].clear();
+                reader.read(in, block);
+                tasks[slot] = pool.submit(() -> processor.process(in, out));
+            }
+        } finally {
+            for (int i = 0; i < slots; i++) {
+                // don't free memory a task might still be using.
+                if (tasks[i] != null)
+                    tasks[i].quietlyJoin();
+                if (ins[i] != null)
+                    ins[i].release();
+                if (outs[i] != null)
+                    outs[i].release();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface BlockReader {
+        void read(@NotNull Bytes in, int block);
+    }
+
+    @FunctionalInterface
+    interface BlockProcessor {
+        void process(@NotNull Bytes in, @NotNull Bytes out);
+    }
+
+    /**
+     * The location of each block in a frame.
+     */
+    public static final class Index {
+        final long frameStart;
+        final int blockSize;
+        final long uncompressedLength;
+        final long[] offsets;
+        @NotNull
+        final String compressionName;
+
+        Index(long frameStart, int blockSize, long uncompressedLength, long[] offsets, @NotNull String compressionName) {
+            this.frameStart = frameStart;
+            this.blockSize = blockSize;
+            this.uncompressedLength = uncompressedLength;
+            this.offsets = offsets;
+            this.compressionName = compressionName;
+        }
+
+        @NotNull
+        public String compressionName() {
+            return compressionName;
+        }
+
+        /**
+         * @return the Compression the frame was written with, or <code>null</code> if it isn't one of the standard ones
+         * or is a DictionaryCompression and no dictionary has been registered.
+         */
+        @Nullable
+        public Compression compression() {
+            return forName(compressionName);
+        }
+
+        public int blockSize() {
+            return blockSize;
+        }
+
+        public int blockCount() {
+            return offsets.length - 1;
+        }
+
+        public long uncompressedLength() {
+            return uncompressedLength;
+        }
+
+        public long compressedLength(int block) {
+            return offsets[block + 1] - offsets[block];
+        }
+
+        /**
+         * @return the number of bytes in this block once uncompressed.
+         */
+        public int uncompressedLength(int block) {
+            return (int) Math.min(blockSize, uncompressedLength - (long) block * blockSize);
+        }
+
+        /**
+         * @return the block containing this offset in the uncompressed data.
+         */
+        public int blockFor(long offset) {
+            return (int) (offset / blockSize);
+        }
+    }
+}
@@ -40,6 +40,10 @@ public interface Compression {
                     Compressions.LZW.compress(uncompressed, compressed);
                     return;
                 }
+                if (StringUtils.isEqual("lz4", cs)) {
+                    Compressions.LZ4.compress(uncompressed, compressed);
+                    return;
+                }
                 break;
             case 'g':
                 if (StringUtils.isEqual("gzip", cs)) {
@@ -47,6 +51,12 @@ public interface Compression {
                     return;
                 }
                 break;
+            case 'd':
+                if (StringUtils.isEqual("dict", cs)) {
+                    DictionaryCompression.current().compress(uncompressed, compressed);
+                    return;
+                }
+                break;
             default:
                 break;
         }
@@ -68,6 +78,10 @@ public interface Compression {
                     Compressions.LZW.uncompress(from, to);
                     return;
                 }
+                if (StringUtils.isEqual("lz4", cs)) {
+                    Compressions.LZ4.uncompress(from, to);
+                    return;
+                }
                 break;
             case 'g':
                 if (StringUtils.isEqual("gzip", cs)) {
@@ -75,6 +89,12 @@ public interface Compression {
                     return;
                 }
                 break;
+            case 'd':
+                if (StringUtils.isEqual("dict", cs)) {
+                    DictionaryCompression.current().uncompress(from, to);
+                    return;
+                }
+                break;
             default:
                 throw new IllegalArgumentException("Unsupported compression " + cs);
         }
@@ -91,11 +111,17 @@ public interface Compression {
             case 'l':
                 if (StringUtils.isEqual("lzw", cs))
                     return Compressions.LZW.uncompress(bytes.apply(t));
+                if (StringUtils.isEqual("lz4", cs))
+                    return Compressions.LZ4.uncompress(bytes.apply(t));
                 break;
             case 'g':
                 if (StringUtils.isEqual("gzip", cs))
                     return Compressions.GZIP.uncompress(bytes.apply(t));
                 break;
+            case 'd':
+                if (StringUtils.isEqual("dict", cs))
+                    return DictionaryCompression.current().uncompress(bytes.apply(t));
+                break;
             default:
                 return null;
         }
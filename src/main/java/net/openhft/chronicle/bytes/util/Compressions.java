@@ -16,15 +16,16 @@
 
 package net.openhft.chronicle.bytes.util;
 
+import net.openhft.chronicle.bytes.Bytes;
 import net.openhft.chronicle.bytes.BytesIn;
 import net.openhft.chronicle.bytes.BytesOut;
 import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.bytes.VanillaBytes;
+import net.openhft.chronicle.core.Maths;
 import net.openhft.chronicle.core.io.IORuntimeException;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.*;
 import java.util.zip.*;
 
 /*
@@ -70,6 +71,45 @@ public enum Compressions implements Compression {
         }
     },
     LZW {
+        @NotNull
+        @Override
+        public byte[] compress(@NotNull byte[] bytes) {
+            return Deflaters.deflate(bytes);
+        }
+
+        @Override
+        public byte[] uncompress(@NotNull byte[] bytes) throws IORuntimeException {
+            return Deflaters.inflate(bytes);
+        }
+
+        @Override
+        public void compress(@NotNull BytesIn from, @NotNull BytesOut to) {
+            if (Deflaters.canUseDirect(from, to)) {
+                Deflaters.deflateDirect(from, to);
+                return;
+            }
+            try (OutputStream output = new DeflaterOutputStream(to.outputStream(), Deflaters.deflater())) {
+                from.copyTo(output);
+
+            } catch (IOException e) {
+                throw new AssertionError(e); // compressing in memory
+            }
+        }
+
+        @Override
+        public void uncompress(@NotNull BytesIn from, @NotNull BytesOut to) throws IORuntimeException {
+            if (Deflaters.canUseDirect(from, to)) {
+                Deflaters.inflateDirect(from, to);
+                return;
+            }
+            try (InputStream input = new InflaterInputStream(from.inputStream(), Deflaters.inflater())) {
+                to.copyFrom(input);
+
+            } catch (IOException e) {
+                throw new IORuntimeException(e);
+            }
+        }
+
         @NotNull
         @Override
         public InputStream decompressingStream(@NotNull InputStream input) {
@@ -104,5 +144,128 @@ public enum Compressions implements Compression {
                 throw new AssertionError(e); // in memory.
             }
         }
+    },
+    /**
+     * The LZ4 block format preceded by the uncompressed length as a stop bit encoded number.
+     * Much faster than LZW or GZIP for a lower compression ratio.
+     */
+    LZ4 {
+        @NotNull
+        @Override
+        public byte[] compress(@NotNull byte[] bytes) {
+            Bytes from = Bytes.wrapForRead(bytes);
+            Bytes to = Bytes.wrapForWrite(new byte[(int) (10 + LZ4Codec.maxCompressedLength(bytes.length))]);
+            try {
+                compress(from, to);
+                return to.toByteArray();
+            } finally {
+                from.release();
+                to.release();
+            }
+        }
+
+        @Override
+        public byte[] uncompress(@NotNull byte[] bytes) throws IORuntimeException {
+            Bytes from = Bytes.wrapForRead(bytes);
+            try {
+                int length = Maths.toUInt31(from.readStopBit());
+                Bytes to = Bytes.wrapForWrite(new byte[length]);
+                try {
+                    uncompress0(from, to, length);
+                    return to.toByteArray();
+                } finally {
+                    to.release();
+                }
+            } finally {
+                from.release();
+            }
+        }
+
+        @Override
+        public void compress(@NotNull BytesIn from, @NotNull BytesOut to) {
+            if (to instanceof VanillaBytes) {
+                compress0(from, (Bytes) to);
+                return;
+            }
+            Bytes out = Bytes.wrapForWrite(new byte[(int) (10 + LZ4Codec.maxCompressedLength(from.readRemaining()))]);
+            try {
+                compress0(from, out);
+                to.write(out);
+            } finally {
+                out.release();
+            }
+        }
+
+        /**
+         * Only for a Bytes whose positions are offsets in its bytesStore(), such as a VanillaBytes.
+         */
+        private void compress0(@NotNull BytesIn from, @NotNull Bytes out) {
+            long length = from.readRemaining();
+            out.writeStopBit(length);
+            long writePosition = out.writePosition();
+            out.ensureCapacity(writePosition + LZ4Codec.maxCompressedLength(length));
+            long compressed = LZ4Codec.compress(from, from.readPosition(), length, out.bytesStore(), writePosition);
+            out.writeSkip(compressed);
+        }
+
+        @Override
+        public void uncompress(@NotNull BytesIn from, @NotNull BytesOut to) throws IORuntimeException {
+            long length = from.readStopBit();
+            if (to instanceof VanillaBytes) {
+                uncompress0(from, (Bytes) to, length);
+                return;
+            }
+            Bytes out = Bytes.wrapForWrite(new byte[Maths.toUInt31(length)]);
+            try {
+                uncompress0(from, out, length);
+                to.write(out);
+            } finally {
+                out.release();
+            }
+        }
+
+        /**
+         * Only for a Bytes whose positions are offsets in its bytesStore(), such as a VanillaBytes.
+         */
+        private void uncompress0(@NotNull BytesIn from, @NotNull Bytes to, long length) throws IORuntimeException {
+            long writePosition = to.writePosition();
+            to.ensureCapacity(writePosition + length);
+            long read = LZ4Codec.uncompress(from, from.readPosition(), from.readRemaining(), to.bytesStore(), writePosition, length);
+            from.readSkip(read);
+            to.writeSkip(length);
+        }
+
+        @NotNull
+        @Override
+        public InputStream decompressingStream(@NotNull InputStream input) throws IORuntimeException {
+            try {
+                return new ByteArrayInputStream(uncompress(readFully(input)));
+
+            } catch (IOException e) {
+                throw new IORuntimeException(e);
+            }
+        }
+
+        @NotNull
+        @Override
+        public OutputStream compressingStream(@NotNull OutputStream output) {
+            // the block is compressed as a whole on close()
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() throws IOException {
+                    output.write(compress(toByteArray()));
+                    output.close();
+                }
+            };
+        }
+    };
+
+    @NotNull
+    static byte[] readFully(@NotNull InputStream input) throws IOException {
+        @NotNull ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        @NotNull byte[] buf = new byte[512];
+        for (int len; (len = input.read(buf)) > 0; )
+            baos.write(buf, 0, len);
+        return baos.toByteArray();
     }
 }
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes.util;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesIn;
+import net.openhft.chronicle.bytes.BytesOut;
+import net.openhft.chronicle.bytes.VanillaBytes;
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import net.openhft.chronicle.core.util.ByteBuffers;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Deflate and inflate with a Deflater or Inflater pooled per thread.
+ * <p>
+ * On Java 11+ direct Bytes are passed to the Deflater and Inflater as ByteBuffers over the
+ * same memory so the data is not copied through streams and temporary arrays.
+ */
+@SuppressWarnings("rawtypes")
+enum Deflaters {
+    ;
+    private static final int MIN_CHUNK = 512;
+    private static final int MAX_CHUNK = 1 << 20;
+    private static final ThreadLocal<Deflater> DEFLATER_TL = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION));
+    private static final ThreadLocal<Inflater> INFLATER_TL = ThreadLocal.withInitial(Inflater::new);
+    private static final ThreadLocal<Deflater> RAW_DEFLATER_TL = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_COMPRESSION, true));
+    private static final ThreadLocal<Inflater> RAW_INFLATER_TL = ThreadLocal.withInitial(() -> new Inflater(true));
+    private static final ThreadLocal<ByteBuffer> INPUT_TL = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(0));
+    private static final ThreadLocal<ByteBuffer> OUTPUT_TL = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(0));
+    // only available in Java 11+
+    @Nullable
+    private static final MethodHandle DEFLATER_SET_INPUT = findVirtual(Deflater.class, "setInput", methodType(void.class, ByteBuffer.class));
+    @Nullable
+    private static final MethodHandle DEFLATER_DEFLATE = findVirtual(Deflater.class, "deflate", methodType(int.class, ByteBuffer.class));
+    @Nullable
+    private static final MethodHandle INFLATER_SET_INPUT = findVirtual(Inflater.class, "setInput", methodType(void.class, ByteBuffer.class));
+    @Nullable
+    private static final MethodHandle INFLATER_INFLATE = findVirtual(Inflater.class, "inflate", methodType(int.class, ByteBuffer.class));
+    private static final boolean BYTE_BUFFER_SUPPORTED = DEFLATER_SET_INPUT != null && DEFLATER_DEFLATE != null
+            && INFLATER_SET_INPUT != null && INFLATER_INFLATE != null;
+
+    @Nullable
+    private static MethodHandle findVirtual(@NotNull Class<?> type, @NotNull String name, @NotNull java.lang.invoke.MethodType methodType) {
+        try {
+            return MethodHandles.publicLookup().findVirtual(type, name, methodType);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    @NotNull
+    static Deflater deflater() {
+        Deflater deflater = DEFLATER_TL.get();
+        deflater.reset();
+        return deflater;
+    }
+
+    @NotNull
+    static Inflater inflater() {
+        Inflater inflater = INFLATER_TL.get();
+        inflater.reset();
+        return inflater;
+    }
+
+    /**
+     * @return a Deflater which doesn't write the zlib header or checksum.
+     */
+    @NotNull
+    static Deflater rawDeflater() {
+        Deflater deflater = RAW_DEFLATER_TL.get();
+        deflater.reset();
+        return deflater;
+    }
+
+    /**
+     * @return an Inflater which doesn't expect the zlib header or checksum.
+     */
+    @NotNull
+    static Inflater rawInflater() {
+        Inflater inflater = RAW_INFLATER_TL.get();
+        inflater.reset();
+        return inflater;
+    }
+
+    /**
+     * @return whether the data can be passed to the Deflater/Inflater without copying.
+     */
+    static boolean canUseDirect(@NotNull BytesIn from, @NotNull BytesOut to) {
+        return BYTE_BUFFER_SUPPORTED
+                && from instanceof VanillaBytes && from.isDirectMemory()
+                && to instanceof VanillaBytes && to.isDirectMemory()
+                && from.readRemaining() <= Integer.MAX_VALUE;
+    }
+
+    @NotNull
+    static byte[] deflate(@NotNull byte[] bytes) {
+        return deflate(deflater(), bytes);
+    }
+
+    @NotNull
+    static byte[] deflate(@NotNull Deflater deflater, @NotNull byte[] bytes) {
+        deflater.setInput(bytes);
+        deflater.finish();
+        byte[] out = new byte[Math.max(MIN_CHUNK, bytes.length / 2)];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == out.length)
+                out = Arrays.copyOf(out, out.length * 2);
+            length += deflater.deflate(out, length, out.length - length);
+        }
+        return Arrays.copyOf(out, length);
+    }
+
+    @NotNull
+    static byte[] inflate(@NotNull byte[] bytes) throws IORuntimeException {
+        return inflate(inflater(), bytes, 0, bytes.length);
+    }
+
+    /**
+     * Inflate until the end of the compressed data, after which <code>inflater.getRemaining()</code>
+     * is the number of bytes of input not used.
+     */
+    @NotNull
+    static byte[] inflate(@NotNull Inflater inflater, @NotNull byte[] bytes, int offset, int inLength) throws IORuntimeException {
+        inflater.setInput(bytes, offset, inLength);
+        byte[] out = new byte[Math.max(MIN_CHUNK, inLength * 4)];
+        int length = 0;
+        try {
+            while (!inflater.finished()) {
+                if (length == out.length)
+                    out = Arrays.copyOf(out, out.length * 2);
+                int n = inflater.inflate(out, length, out.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IORuntimeException("Unexpected end of compressed data");
+                length += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IORuntimeException(e);
+        }
+        return Arrays.copyOf(out, length);
+    }
+
+    /**
+     * Deflate the readable bytes of <code>from</code> straight into the memory of <code>to</code>.
+     * Only call when canUseDirect(from, to) is true.
+     */
+    static void deflateDirect(@NotNull BytesIn from, @NotNull BytesOut to) throws BufferOverflowException {
+        deflateDirect(deflater(), from, to);
+    }
+
+    static void deflateDirect(@NotNull Deflater deflater, @NotNull BytesIn from, @NotNull BytesOut to)
+            throws BufferOverflowException {
+        Bytes out = (Bytes) to;
+        long length = from.readRemaining();
+        try {
+            DEFLATER_SET_INPUT.invokeExact(deflater, view(INPUT_TL, from.addressForRead(from.readPosition()), length));
+            deflater.finish();
+            while (!deflater.finished()) {
+                ByteBuffer output = outputView(out, length / 2);
+                out.writeSkip((int) DEFLATER_DEFLATE.invokeExact(deflater, output));
+            }
+        } catch (Throwable t) {
+            throw Jvm.rethrow(t);
+        }
+    }
+
+    /**
+     * Inflate from the readPosition() of <code>from</code> straight into the memory of <code>to</code>,
+     * consuming only the compressed data. Only call when canUseDirect(from, to) is true.
+     */
+    static void inflateDirect(@NotNull BytesIn from, @NotNull BytesOut to) throws IORuntimeException, BufferOverflowException {
+        inflateDirect(inflater(), from, to);
+    }
+
+    static void inflateDirect(@NotNull Inflater inflater, @NotNull BytesIn from, @NotNull BytesOut to)
+            throws IORuntimeException, BufferOverflowException {
+        Bytes out = (Bytes) to;
+        long length = from.readRemaining();
+        ByteBuffer input = view(INPUT_TL, from.addressForRead(from.readPosition()), length);
+        try {
+            INFLATER_SET_INPUT.invokeExact(inflater, input);
+            while (!inflater.finished()) {
+                ByteBuffer output = outputView(out, length * 4);
+                int n = (int) INFLATER_INFLATE.invokeExact(inflater, output);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IORuntimeException("Unexpected end of compressed data");
+                out.writeSkip(n);
+            }
+        } catch (DataFormatException e) {
+            throw new IORuntimeException(e);
+        } catch (Throwable t) {
+            throw Jvm.rethrow(t);
+        }
+        from.readSkip(input.position());
+    }
+
+    /**
+     * Inflate from the readPosition() of <code>from</code> a chunk at a time, consuming only the compressed data,
+     * for when the memory can't be passed to the Inflater directly.
+     */
+    static void inflate(@NotNull Inflater inflater, @NotNull BytesIn from, @NotNull BytesOut to)
+            throws IORuntimeException, BufferOverflowException {
+        byte[] input = new byte[(int) Math.min(MAX_CHUNK, Math.max(MIN_CHUNK, from.readRemaining()))];
+        byte[] output = new byte[Math.min(MAX_CHUNK, input.length * 4)];
+        try {
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    int n = from.read(input, 0, input.length);
+                    if (n <= 0)
+                        throw new IORuntimeException("Unexpected end of compressed data");
+                    inflater.setInput(input, 0, n);
+                }
+                int n = inflater.inflate(output);
+                if (n == 0 && inflater.needsDictionary())
+                    throw new IORuntimeException("Unexpected end of compressed data");
+                to.write(output, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new IORuntimeException(e);
+        }
+        // give back what was read past the end of the compressed data.
+        from.readPosition(from.readPosition() - inflater.getRemaining());
+    }
+
+    @NotNull
+    private static ByteBuffer outputView(@NotNull Bytes out, long estimate) throws BufferOverflowException {
+        long writePosition = out.writePosition();
+        long chunk = Math.min(out.writeRemaining(), Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, estimate)));
+        if (chunk <= 0)
+            throw new BufferOverflowException();
+        out.ensureCapacity(writePosition + chunk);
+        return view(OUTPUT_TL, out.addressForWrite(writePosition), chunk);
+    }
+
+    @NotNull
+    private static ByteBuffer view(@NotNull ThreadLocal<ByteBuffer> byteBufferTL, long address, long capacity) {
+        ByteBuffer byteBuffer = byteBufferTL.get();
+        ByteBuffers.setAddressCapacity(byteBuffer, address, capacity);
+        byteBuffer.clear();
+        return byteBuffer;
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes.util;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesIn;
+import net.openhft.chronicle.bytes.BytesOut;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate compression with a preset dictionary trained from sample messages, for small messages which are
+ * too short for a generic compression to find much repetition in.
+ * <p>
+ * The compressed form is the dictionary id as a stop bit encoded number followed by raw deflate data
+ * without the zlib header or checksum. A dictionary must be {@link #register(DictionaryCompression) registered}
+ * on the reading side to uncompress data written with it.
+ */
+@SuppressWarnings("rawtypes")
+public class DictionaryCompression implements Compression {
+    /**
+     * The largest useful dictionary, the size of the deflate window.
+     */
+    public static final int MAX_DICTIONARY_SIZE = 32 << 10;
+    private static final int GRAM = 8;
+    private static final int SEGMENT = 32;
+    private static final int GRAM_HASH_BITS = 18;
+    private static final Map<Integer, DictionaryCompression> DICTIONARIES = new ConcurrentHashMap<>();
+    @Nullable
+    private static volatile DictionaryCompression current;
+
+    private final int id;
+    @NotNull
+    private final byte[] dictionary;
+
+    public DictionaryCompression(int id, @NotNull byte[] dictionary) throws IllegalArgumentException {
+        if (id < 0)
+            throw new IllegalArgumentException("id: " + id);
+        if (dictionary.length > MAX_DICTIONARY_SIZE)
+            throw new IllegalArgumentException("Dictionary of " + dictionary.length + " bytes is larger than " + MAX_DICTIONARY_SIZE);
+        this.id = id;
+        this.dictionary = dictionary.clone();
+    }
+
+    /**
+     * Build a dictionary from the fragments which appear in the most samples.
+     * The samples are read from their readPosition() to their readLimit() and are not changed.
+     *
+     * @param id      to record in the header of each message
+     * @param maxSize of the dictionary, no more than {@link #MAX_DICTIONARY_SIZE}
+     * @param samples of typical messages
+     * @return a DictionaryCompression which has not been registered.
+     */
+    @NotNull
+    public static DictionaryCompression train(int id, int maxSize, @NotNull Iterable<? extends BytesStore> samples)
+            throws IllegalArgumentException {
+        if (maxSize <= 0 || maxSize > MAX_DICTIONARY_SIZE)
+            throw new IllegalArgumentException("maxSize: " + maxSize);
+        List<byte[]> sampleList = new ArrayList<>();
+        for (BytesStore sample : samples)
+            sampleList.add(sample.toByteArray());
+
+        // count the number of samples each fragment appears in.
+        int[] counts = new int[1 << GRAM_HASH_BITS];
+        int[] lastSample = new int[counts.length];
+        for (int s = 0; s < sampleList.size(); s++) {
+            byte[] sample = sampleList.get(s);
+            for (int i = 0; i + GRAM <= sample.length; i++) {
+                int h = gramHash(sample, i);
+                if (lastSample[h] != s + 1) {
+                    lastSample[h] = s + 1;
+                    counts[h]++;
+                }
+            }
+        }
+
+        // greedily pick the segments covering the most common fragments, rescoring as fragments are used.
+        PriorityQueue<Segment> queue = new PriorityQueue<>();
+        for (byte[] sample : sampleList) {
+            for (int i = 0; i + GRAM <= sample.length; i += GRAM) {
+                Segment segment = new Segment(sample, i, Math.min(SEGMENT, sample.length - i));
+                if (segment.score(counts) > 0)
+                    queue.add(segment);
+            }
+        }
+        List<Segment> chosen = new ArrayList<>();
+        int size = 0;
+        while (!queue.isEmpty() && size < maxSize) {
+            Segment segment = queue.poll();
+            int score = segment.score(counts);
+            if (score <= 0)
+                continue;
+            if (!queue.isEmpty() && score < queue.peek().score) {
+                queue.add(segment);
+                continue;
+            }
+            int length = Math.min(segment.length, maxSize - size);
+            for (int i = segment.offset; i + GRAM <= segment.offset + length; i++)
+                counts[gramHash(segment.sample, i)] = 0;
+            chosen.add(new Segment(segment.sample, segment.offset, length));
+            size += length;
+        }
+
+        // the best segments go last so they are the closest and cheapest to refer to.
+        byte[] dictionary = new byte[size];
+        int pos = 0;
+        for (int i = chosen.size() - 1; i >= 0; i--) {
+            Segment segment = chosen.get(i);
+            System.arraycopy(segment.sample, segment.offset, dictionary, pos, segment.length);
+            pos += segment.length;
+        }
+        return new DictionaryCompression(id, dictionary);
+    }
+
+    private static int gramHash(@NotNull byte[] bytes, int offset) {
+        long l = 0;
+        for (int i = 0; i < GRAM; i++)
+            l = (l << 8) | (bytes[offset + i] & 0xFF);
+        return (int) (l * 0x9E3779B97F4A7C15L >>> (64 - GRAM_HASH_BITS));
+    }
+
+    /**
+     * Make a dictionary available to uncompress messages with its id and, if the latest registered,
+     * to compress with {@link Compression#compress(CharSequence, Bytes, Bytes)} as "dict".
+     */
+    public static void register(@NotNull DictionaryCompression compression) {
+        DICTIONARIES.put(compression.id, compression);
+        current = compression;
+    }
+
+    @Nullable
+    public static DictionaryCompression forId(int id) {
+        return DICTIONARIES.get(id);
+    }
+
+    /**
+     * @return the most recently registered dictionary
+     * @throws IllegalStateException if none has been registered.
+     */
+    @NotNull
+    public static DictionaryCompression current() throws IllegalStateException {
+        DictionaryCompression compression = current;
+        if (compression == null)
+            throw new IllegalStateException("No dictionary has been registered");
+        return compression;
+    }
+
+    /**
+     * @return the most recently registered dictionary, or <code>null</code> if none has been registered.
+     */
+    @Nullable
+    static DictionaryCompression currentOrNull() {
+        return current;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    /**
+     * @return a copy of the dictionary so it can be saved and passed to the constructor later.
+     */
+    @NotNull
+    public byte[] dictionary() {
+        return dictionary.clone();
+    }
+
+    @NotNull
+    @Override
+    public byte[] compress(@NotNull byte[] bytes) {
+        byte[] compressed = deflate(bytes);
+        Bytes out = Bytes.wrapForWrite(new byte[compressed.length + 5]);
+        try {
+            out.writeStopBit(id);
+            out.write(compressed);
+            return out.toByteArray();
+        } finally {
+            out.release();
+        }
+    }
+
+    @Override
+    public byte[] uncompress(@NotNull byte[] bytes) throws IORuntimeException {
+        Bytes in = Bytes.wrapForRead(bytes);
+        try {
+            DictionaryCompression compression = forHeader(in);
+            int offset = (int) in.readPosition();
+            return Deflaters.inflate(compression.inflater(), bytes, offset, bytes.length - offset);
+        } finally {
+            in.release();
+        }
+    }
+
+    /**
+     * Compress the readable bytes of <code>from</code> without consuming them.
+     */
+    @Override
+    public void compress(@NotNull BytesIn from, @NotNull BytesOut to) {
+        to.writeStopBit(id);
+        if (Deflaters.canUseDirect(from, to)) {
+            Deflaters.deflateDirect(deflater(), from, to);
+            return;
+        }
+        try (OutputStream output = new DeflaterOutputStream(to.outputStream(), deflater())) {
+            from.copyTo(output);
+
+        } catch (IOException e) {
+            throw new AssertionError(e); // compressing in memory
+        }
+    }
+
+    /**
+     * Uncompress one message, consuming only the bytes of that message from <code>from</code>.
+     */
+    @Override
+    public void uncompress(@NotNull BytesIn from, @NotNull BytesOut to) throws IORuntimeException {
+        DictionaryCompression compression = forHeader(from);
+        if (Deflaters.canUseDirect(from, to))
+            Deflaters.inflateDirect(compression.inflater(), from, to);
+        else
+            Deflaters.inflate(compression.inflater(), from, to);
+    }
+
+    @NotNull
+    private DictionaryCompression forHeader(@NotNull BytesIn in) throws IORuntimeException {
+        int id = Maths.toUInt31(in.readStopBit());
+        if (id == this.id)
+            return this;
+        DictionaryCompression compression = forId(id);
+        if (compression == null)
+            throw new IORuntimeException("Unknown dictionary id " + id);
+        return compression;
+    }
+
+    @NotNull
+    private byte[] deflate(@NotNull byte[] bytes) {
+        return Deflaters.deflate(deflater(), bytes);
+    }
+
+    @NotNull
+    private Deflater deflater() {
+        Deflater deflater = Deflaters.rawDeflater();
+        deflater.setDictionary(dictionary);
+        return deflater;
+    }
+
+    @NotNull
+    private Inflater inflater() {
+        Inflater inflater = Deflaters.rawInflater();
+        inflater.setDictionary(dictionary);
+        return inflater;
+    }
+
+    @NotNull
+    @Override
+    public InputStream decompressingStream(@NotNull InputStream input) throws IORuntimeException {
+        try {
+            return new ByteArrayInputStream(uncompress(Compressions.readFully(input)));
+
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+    }
+
+    @NotNull
+    @Override
+    public OutputStream compressingStream(@NotNull OutputStream output) {
+        // the message is compressed as a whole on close()
+        return new ByteArrayOutputStream() {
+            @Override
+            public void close() throws IOException {
+                output.write(compress(toByteArray()));
+                output.close();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "DictionaryCompression{id=" + id + ", size=" + dictionary.length + '}';
+    }
+
+    static final class Segment implements Comparable<Segment> {
+        final byte[] sample;
+        final int offset, length;
+        int score;
+
+        Segment(byte[] sample, int offset, int length) {
+            this.sample = sample;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * @return the number of other samples sharing the fragments of this segment not already in the dictionary.
+         */
+        int score(int[] counts) {
+            int score = 0;
+            for (int i = offset; i + GRAM <= offset + length; i++)
+                score += Math.max(0, counts[gramHash(sample, i)] - 1);
+            return this.score = score;
+        }
+
+        @Override
+        public int compareTo(@NotNull Segment o) {
+            return Integer.compare(o.score, score);
+        }
+    }
+}
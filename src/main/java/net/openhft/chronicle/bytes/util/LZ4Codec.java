@@ -0,0 +1,239 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes.util;
+
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.bytes.RandomDataInput;
+import net.openhft.chronicle.bytes.RandomDataOutput;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteOrder;
+
+/**
+ * A pure Java codec for the LZ4 block format which reads and writes a BytesStore directly.
+ * <p>
+ * A block is a series of sequences, each a token, literals and a match of at least 4 bytes
+ * up to 64 KB back. The block doesn't record its uncompressed length so the caller must.
+ */
+enum LZ4Codec {
+    ;
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_LOG = 14;
+    private static final int SKIP_TRIGGER = 6;
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+    private static final ThreadLocal<int[]> HASH_TABLE_TL = ThreadLocal.withInitial(() -> new int[1 << HASH_LOG]);
+
+    static long maxCompressedLength(long length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compress <code>length</code> bytes from <code>in</code> into <code>out</code>, which must have room for
+     * maxCompressedLength(length) bytes.
+     *
+     * @return the length of the compressed block
+     */
+    static long compress(@NotNull RandomDataInput in, long inPos, long length,
+                         @NotNull RandomDataOutput out, long outPos)
+            throws IllegalArgumentException, BufferUnderflowException, BufferOverflowException {
+        if (length > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Cannot compress a block of " + length + " bytes");
+        // positions are relative to inPos, any left over from a previous block are checked before use.
+        int[] table = HASH_TABLE_TL.get();
+        long end = inPos + length;
+        long matchLimit = end - LAST_LITERALS;
+        long mfLimit = end - MF_LIMIT;
+        long anchor = inPos;
+        long op = outPos;
+        long ip = inPos;
+        while (ip < mfLimit) {
+            int seq = in.readInt(ip);
+            int h = hash(seq);
+            long ref = inPos + table[h];
+            table[h] = (int) (ip - inPos);
+            if (ref < inPos || ref >= ip || ip - ref > MAX_OFFSET || in.readInt(ref) != seq) {
+                ip += 1 + ((ip - anchor) >>> SKIP_TRIGGER);
+                continue;
+            }
+            // extend the match backwards into the literals
+            while (ip > anchor && ref > inPos && in.readByte(ip - 1) == in.readByte(ref - 1)) {
+                ip--;
+                ref--;
+            }
+            long matchLength = MIN_MATCH + matchLength(in, ip + MIN_MATCH, ref + MIN_MATCH, matchLimit);
+            op = writeSequence(in, anchor, ip - anchor, out, op, (int) (ip - ref), matchLength);
+            ip += matchLength;
+            anchor = ip;
+            if (ip - 2 < mfLimit)
+                table[hash(in.readInt(ip - 2))] = (int) (ip - 2 - inPos);
+        }
+        // the last literals.
+        long literals = end - anchor;
+        op = writeLength(out, op, literals, 0);
+        if (literals > 0)
+            out.write(op, in, anchor, literals);
+        return op + literals - outPos;
+    }
+
+    /**
+     * Uncompress a block which expands to exactly <code>length</code> bytes.
+     *
+     * @return the number of bytes of the block read from <code>in</code>
+     * @throws IORuntimeException if the block is corrupt.
+     */
+    static long uncompress(@NotNull RandomDataInput in, long inPos, long inLength,
+                           @NotNull BytesStore out, long outPos, long length)
+            throws IORuntimeException, BufferUnderflowException, BufferOverflowException {
+        long ip = inPos;
+        long inEnd = inPos + inLength;
+        long op = outPos;
+        long outEnd = outPos + length;
+        while (true) {
+            if (ip >= inEnd)
+                throw corrupt(ip - inPos);
+            int token = in.readUnsignedByte(ip++);
+            long literals = token >>> 4;
+            if (literals == 15) {
+                int b;
+                do {
+                    if (ip >= inEnd)
+                        throw corrupt(ip - inPos);
+                    b = in.readUnsignedByte(ip++);
+                    literals += b;
+                } while (b == 255);
+            }
+            if (literals > inEnd - ip || literals > outEnd - op)
+                throw corrupt(ip - inPos);
+            if (literals > 0)
+                out.write(op, in, ip, literals);
+            ip += literals;
+            op += literals;
+            if (op == outEnd)
+                return ip - inPos;
+
+            if (inEnd - ip < 2)
+                throw corrupt(ip - inPos);
+            int offset = in.readUnsignedByte(ip) | (in.readUnsignedByte(ip + 1) << 8);
+            ip += 2;
+            if (offset == 0 || offset > op - outPos)
+                throw corrupt(ip - inPos);
+            long matchLength = token & 15;
+            if (matchLength == 15) {
+                int b;
+                do {
+                    if (ip >= inEnd)
+                        throw corrupt(ip - inPos);
+                    b = in.readUnsignedByte(ip++);
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > outEnd - op)
+                throw corrupt(ip - inPos);
+            copyMatch(out, op, offset, matchLength);
+            op += matchLength;
+        }
+    }
+
+    private static int hash(int seq) {
+        return (seq * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static long matchLength(@NotNull RandomDataInput in, long ip, long ref, long limit)
+            throws BufferUnderflowException {
+        long start = ip;
+        while (ip <= limit - 8) {
+            long diff = in.readLong(ip) ^ in.readLong(ref);
+            if (diff != 0) {
+                int bits = LITTLE_ENDIAN ? Long.numberOfTrailingZeros(diff) : Long.numberOfLeadingZeros(diff);
+                return ip + (bits >>> 3) - start;
+            }
+            ip += 8;
+            ref += 8;
+        }
+        while (ip < limit && in.readByte(ip) == in.readByte(ref)) {
+            ip++;
+            ref++;
+        }
+        return ip - start;
+    }
+
+    private static long writeSequence(@NotNull RandomDataInput in, long anchor, long literals,
+                                      @NotNull RandomDataOutput out, long op, int offset, long matchLength)
+            throws BufferOverflowException, BufferUnderflowException {
+        long extra = matchLength - MIN_MATCH;
+        op = writeLength(out, op, literals, (int) Math.min(extra, 15));
+        if (literals > 0) {
+            out.write(op, in, anchor, literals);
+            op += literals;
+        }
+        out.writeByte(op++, (byte) offset);
+        out.writeByte(op++, (byte) (offset >>> 8));
+        if (extra >= 15)
+            op = writeExtraLength(out, op, extra - 15);
+        return op;
+    }
+
+    /**
+     * Write the token and any extra bytes of the literal length.
+     */
+    private static long writeLength(@NotNull RandomDataOutput out, long op, long literals, int matchToken)
+            throws BufferOverflowException {
+        if (literals < 15) {
+            out.writeByte(op++, (byte) ((literals << 4) | matchToken));
+            return op;
+        }
+        out.writeByte(op++, (byte) (0xF0 | matchToken));
+        return writeExtraLength(out, op, literals - 15);
+    }
+
+    private static long writeExtraLength(@NotNull RandomDataOutput out, long op, long length)
+            throws BufferOverflowException {
+        for (; length >= 255; length -= 255)
+            out.writeByte(op++, (byte) 255);
+        out.writeByte(op++, (byte) length);
+        return op;
+    }
+
+    private static void copyMatch(@NotNull BytesStore out, long op, int offset, long matchLength)
+            throws BufferOverflowException, BufferUnderflowException {
+        long from = op - offset;
+        if (offset >= matchLength) {
+            out.write(op, out, from, matchLength);
+            return;
+        }
+        // the match overlaps the bytes being written so copy forwards in steps no larger than the offset.
+        long i = 0;
+        if (offset >= 8) {
+            for (; i < matchLength - 7; i += 8)
+                out.writeLong(op + i, out.readLong(from + i));
+        }
+        for (; i < matchLength; i++)
+            out.writeByte(op + i, out.readByte(from + i));
+    }
+
+    @NotNull
+    private static IORuntimeException corrupt(long position) {
+        return new IORuntimeException("Corrupt LZ4 block at byte " + position);
+    }
+}
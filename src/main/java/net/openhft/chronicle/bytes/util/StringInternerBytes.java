@@ -21,16 +21,18 @@ import net.openhft.chronicle.bytes.BytesUtil;
 import net.openhft.chronicle.bytes.algo.BytesStoreHash;
 import net.openhft.chronicle.core.Maths;
 import net.openhft.chronicle.core.pool.StringInterner;
-import net.openhft.chronicle.core.util.StringUtils;
 import org.jetbrains.annotations.NotNull;
 
-import static net.openhft.chronicle.bytes.BytesUtil.toCharArray;
-
 /**
+ * The statistics are plain fields which are not updated atomically, so when an interner is shared between
+ * threads some updates can be lost and they should be treated as approximate.
+ *
  * @author Rob Austin.
  */
 public class StringInternerBytes extends StringInterner {
 
+    private long hits, misses, evictions, collisions;
+
     public StringInternerBytes(int capacity) {
         super(capacity);
     }
@@ -57,17 +59,57 @@ public class StringInternerBytes extends StringInterner {
             int h = hash32 & mask;
             String s = interner[h];
             long position = bytes.readPosition();
-            if (BytesUtil.bytesEqual(s, bytes, position, length))
+            if (BytesUtil.bytesEqual(s, bytes, position, length)) {
+                hits++;
                 return s;
+            }
+            if (s != null)
+                collisions++;
             int h2 = (hash32 >> shift) & mask;
             String s2 = interner[h2];
-            if (BytesUtil.bytesEqual(s2, bytes, position, length))
+            if (BytesUtil.bytesEqual(s2, bytes, position, length)) {
+                hits++;
                 return s2;
+            }
+            misses++;
+            if (s != null && s2 != null)
+                evictions++;
 
-            char[] chars = toCharArray(bytes, position, length);
-            return interner[s == null || (s2 != null && toggle()) ? h : h2] = StringUtils.newString(chars);
+            return interner[s == null || (s2 != null && toggle()) ? h : h2] = BytesUtil.to8bitString(bytes, position, length);
         } finally {
             bytes.readSkip(length);
         }
     }
+
+    /**
+     * @return the number of lookups from Bytes which found an existing String.
+     */
+    public long hitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups from Bytes which had to create a new String.
+     */
+    public long missCount() {
+        return misses;
+    }
+
+    /**
+     * @return the number of Strings replaced by a newer one.
+     */
+    public long evictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of lookups where the first slot held a different String.
+     */
+    public long collisionCount() {
+        return collisions;
+    }
+
+    public void resetStatistics() {
+        hits = misses = evictions = collisions = 0;
+    }
 }
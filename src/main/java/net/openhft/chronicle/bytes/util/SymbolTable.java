@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes.util;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.bytes.BytesUtil;
+import net.openhft.chronicle.core.Maths;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.nio.BufferUnderflowException;
+import java.util.Arrays;
+
+/**
+ * Assigns a dense, stable int id to each distinct sequence of bytes, starting from 0.
+ * <p>
+ * Unlike the interners, no object is created for a symbol and symbols are never evicted.
+ * The key bytes are kept in one off heap store and looking up an existing symbol doesn't allocate.
+ * <p>
+ * This class is not thread safe.
+ */
+@SuppressWarnings("rawtypes")
+public class SymbolTable implements Closeable {
+    private Bytes<Void> keys;
+    private int[] table;
+    private int mask;
+    private long[] offsets;
+    private int[] lengths;
+    private int[] hashes;
+    private int size = 0;
+
+    public SymbolTable(int capacity) throws IllegalArgumentException {
+        int n = Maths.nextPower2(capacity, 16);
+        table = new int[n * 2];
+        mask = table.length - 1;
+        offsets = new long[n];
+        lengths = new int[n];
+        hashes = new int[n];
+        keys = Bytes.allocateElasticDirect(n * 16L);
+    }
+
+    /**
+     * Find the id for the bytes from the readPosition(), adding a new symbol if it is not already known.
+     *
+     * @param bs     containing the symbol from its readPosition()
+     * @param length of the symbol
+     * @return the id of the symbol
+     */
+    public int idFor(@NotNull BytesStore bs, int length) throws BufferUnderflowException {
+        long position = bs.readPosition();
+        int hash = bs.fastHash(position, length);
+        int index = indexOf(bs, position, length, hash);
+        int id = table[index] - 1;
+        if (id >= 0)
+            return id;
+        return add(bs, position, length, hash, index);
+    }
+
+    public int idFor(@NotNull Bytes bytes) throws BufferUnderflowException {
+        return idFor(bytes, (int) bytes.readRemaining());
+    }
+
+    /**
+     * Read a String written with write8bit() as a symbol id, without decoding it.
+     *
+     * @param in to read from
+     * @return the id of the symbol, or -1 if the String was <code>null</code>
+     */
+    public int read8bitId(@NotNull Bytes in) throws BufferUnderflowException {
+        if (in.readRemaining() <= 0)
+            return -1;
+        long len0 = in.readStopBit();
+        if (len0 == -1)
+            return -1;
+        int len = Maths.toUInt31(len0);
+        int id = idFor(in, len);
+        in.readSkip(len);
+        return id;
+    }
+
+    /**
+     * @param bs     containing the symbol from its readPosition()
+     * @param length of the symbol
+     * @return the id of the symbol, or -1 if it has not been added.
+     */
+    public int findId(@NotNull BytesStore bs, int length) throws BufferUnderflowException {
+        long position = bs.readPosition();
+        int hash = bs.fastHash(position, length);
+        return table[indexOf(bs, position, length, hash)] - 1;
+    }
+
+    /**
+     * @return a copy of the bytes of the symbol with this id.
+     */
+    @NotNull
+    public BytesStore bytesFor(int id) throws IllegalArgumentException {
+        checkId(id);
+        byte[] bytes = new byte[lengths[id]];
+        keys.read(offsets[id], bytes, 0, bytes.length);
+        return BytesStore.wrap(bytes);
+    }
+
+    /**
+     * Append the bytes of the symbol with this id without creating any objects.
+     *
+     * @param id    of the symbol
+     * @param using to append to.
+     */
+    public void bytesFor(int id, @NotNull Bytes using) throws IllegalArgumentException {
+        checkId(id);
+        using.write(keys, offsets[id], lengths[id]);
+    }
+
+    public int lengthFor(int id) throws IllegalArgumentException {
+        checkId(id);
+        return lengths[id];
+    }
+
+    /**
+     * @return the number of symbols, and one more than the highest id.
+     */
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0);
+        keys.clear();
+        size = 0;
+    }
+
+    @Override
+    public void close() {
+        if (keys != null) {
+            keys.release();
+            keys = null;
+        }
+    }
+
+    private void checkId(int id) throws IllegalArgumentException {
+        if (id < 0 || id >= size)
+            throw new IllegalArgumentException("Unknown symbol id " + id);
+    }
+
+    private int indexOf(@NotNull BytesStore bs, long position, int length, int hash)
+            throws BufferUnderflowException {
+        for (int index = hash & mask; ; index = (index + 1) & mask) {
+            int id = table[index] - 1;
+            if (id < 0 || (hashes[id] == hash && keyEquals(id, bs, position, length)))
+                return index;
+        }
+    }
+
+    private boolean keyEquals(int id, @NotNull BytesStore bs, long position, int length)
+            throws BufferUnderflowException {
+        if (lengths[id] != length)
+            return false;
+        return BytesUtil.bytesEqual(keys, offsets[id], bs, position, length);
+    }
+
+    private int add(@NotNull BytesStore bs, long position, int length, int hash, int index) {
+        int id = size++;
+        if (id == offsets.length) {
+            int n = offsets.length * 2;
+            offsets = Arrays.copyOf(offsets, n);
+            lengths = Arrays.copyOf(lengths, n);
+            hashes = Arrays.copyOf(hashes, n);
+        }
+        offsets[id] = keys.writePosition();
+        lengths[id] = length;
+        hashes[id] = hash;
+        keys.write(bs, position, length);
+        table[index] = id + 1;
+        // keep the table at most half full.
+        if (size * 2 > table.length)
+            rehash(table.length * 2);
+        return id;
+    }
+
+    private void rehash(int n) {
+        int[] table2 = new int[n];
+        int mask2 = n - 1;
+        for (int id = 0; id < size; id++) {
+            int index = hashes[id] & mask2;
+            while (table2[index] != 0)
+                index = (index + 1) & mask2;
+            table2[index] = id + 1;
+        }
+        table = table2;
+        mask = mask2;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes.util;
+
+import net.openhft.chronicle.bytes.BitBytes;
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+
+/**
+ * Compresses a series of timestamp and value pairs as described in the Gorilla paper from Facebook.
+ * <p>
+ * Each timestamp is stored as the change in the difference from the timestamp before, the delta of delta,
+ * which is 0 for regular intervals and takes a single bit. Each value is stored as the XOR with the value
+ * before, which is 0 for a repeated value and otherwise only the bits between its leading and trailing zeros
+ * are stored.
+ * <p>
+ * A series is laid out as an int count, followed by the bits written with a {@link BitBytes}.
+ * <p>
+ * The Encoder and Decoder are not thread safe.
+ */
+@SuppressWarnings("rawtypes")
+public enum TimeSeriesCodec {
+    ;
+    // the number of bits for a delta of delta after a prefix of 10, 110, 1110 and 11110, 11111 is followed by all 64
+    static final int[] DELTA_BITS = {7, 9, 12, 32};
+    static final int LEADING_BITS = 5;
+    static final int LENGTH_BITS = 6;
+
+    /**
+     * Appends pairs to a Bytes, and is finished by writing the count at the start of the series.
+     */
+    public static final class Encoder {
+        @NotNull
+        private final Bytes out;
+        @NotNull
+        private final BitBytes bits;
+        private final long countOffset;
+        private int count = 0;
+        private long timestamp;
+        private long delta;
+        private long valueBits;
+        private int blockLeading = -1;
+        private int blockTrailing;
+        private boolean finished = false;
+
+        public Encoder(@NotNull Bytes out) throws BufferOverflowException {
+            this.out = out;
+            this.bits = new BitBytes(out);
+            this.countOffset = out.writePosition();
+            out.writeInt(0);
+        }
+
+        public int count() {
+            return count;
+        }
+
+        public void append(long timestamp, double value) throws BufferOverflowException, IllegalStateException {
+            if (finished)
+                throw new IllegalStateException("Finished");
+            long valueBits = Double.doubleToRawLongBits(value);
+            if (count++ == 0) {
+                bits.writeBits(timestamp, 64);
+                bits.writeBits(valueBits, 64);
+
+            } else {
+                long delta = timestamp - this.timestamp;
+                writeDeltaOfDelta(delta - this.delta);
+                this.delta = delta;
+                writeXor(valueBits ^ this.valueBits);
+            }
+            this.timestamp = timestamp;
+            this.valueBits = valueBits;
+        }
+
+        /**
+         * Write any bits still buffered and the count. Nothing more can be appended.
+         */
+        public void finish() throws BufferOverflowException {
+            if (finished)
+                return;
+            finished = true;
+            bits.flush();
+            out.writeInt(countOffset, count);
+        }
+
+        private void writeDeltaOfDelta(long dod) throws BufferOverflowException {
+            if (dod == 0) {
+                bits.writeBit(false);
+                return;
+            }
+            for (int i = 0; i < DELTA_BITS.length; i++) {
+                int width = DELTA_BITS[i];
+                if (dod >= -(1L << (width - 1)) && dod < 1L << (width - 1)) {
+                    // i + 1 ones then a zero
+                    bits.writeBits(((1L << (i + 1)) - 1) << 1, i + 2);
+                    bits.writeBits(dod, width);
+                    return;
+                }
+            }
+            bits.writeBits((1L << (DELTA_BITS.length + 1)) - 1, DELTA_BITS.length + 1);
+            bits.writeBits(dod, 64);
+        }
+
+        private void writeXor(long xor) throws BufferOverflowException {
+            if (xor == 0) {
+                bits.writeBit(false);
+                return;
+            }
+            int leading = Math.min((1 << LEADING_BITS) - 1, Long.numberOfLeadingZeros(xor));
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (blockLeading >= 0 && leading >= blockLeading && trailing >= blockTrailing) {
+                // fits in the same meaningful bits as the previous value
+                bits.writeBits(0b10, 2);
+                bits.writeBits(xor >>> blockTrailing, 64 - blockLeading - blockTrailing);
+
+            } else {
+                blockLeading = leading;
+                blockTrailing = trailing;
+                int length = 64 - leading - trailing;
+                bits.writeBits(0b11, 2);
+                bits.writeBits(leading, LEADING_BITS);
+                bits.writeBits(length - 1, LENGTH_BITS);
+                bits.writeBits(xor >>> trailing, length);
+            }
+        }
+    }
+
+    /**
+     * Reads the pairs of a series written by an Encoder, one at a time without creating any objects.
+     * <pre>
+     * while (decoder.next())
+     *     process(decoder.timestamp(), decoder.value());
+     * </pre>
+     */
+    public static final class Decoder {
+        @NotNull
+        private final BitBytes bits;
+        private final int count;
+        private int index = 0;
+        private long timestamp;
+        private long delta;
+        private long valueBits;
+        private int blockLeading;
+        private int blockTrailing;
+
+        public Decoder(@NotNull Bytes in) throws BufferUnderflowException, IORuntimeException {
+            this.bits = new BitBytes(in);
+            this.count = in.readInt();
+            if (count < 0)
+                throw new IORuntimeException("Corrupt time series count: " + count);
+        }
+
+        public int count() {
+            return count;
+        }
+
+        /**
+         * @return true if there was another pair to read, false at the end of the series
+         */
+        public boolean next() throws BufferUnderflowException {
+            if (index >= count)
+                return false;
+            if (index++ == 0) {
+                timestamp = bits.readBits(64);
+                valueBits = bits.readBits(64);
+            } else {
+                delta += readDeltaOfDelta();
+                timestamp += delta;
+                valueBits ^= readXor();
+            }
+            // leave the readPosition() at the end of the series
+            if (index == count)
+                bits.readAlign();
+            return true;
+        }
+
+        public long timestamp() {
+            return timestamp;
+        }
+
+        public double value() {
+            return Double.longBitsToDouble(valueBits);
+        }
+
+        private long readDeltaOfDelta() throws BufferUnderflowException {
+            int ones = 0;
+            while (ones <= DELTA_BITS.length && bits.readBit())
+                ones++;
+            if (ones == 0)
+                return 0;
+            return bits.readSignedBits(ones <= DELTA_BITS.length ? DELTA_BITS[ones - 1] : 64);
+        }
+
+        private long readXor() throws BufferUnderflowException {
+            if (!bits.readBit())
+                return 0;
+            if (bits.readBit()) {
+                blockLeading = (int) bits.readBits(LEADING_BITS);
+                blockTrailing = 64 - blockLeading - (int) bits.readBits(LENGTH_BITS) - 1;
+            }
+            return bits.readBits(64 - blockLeading - blockTrailing) << blockTrailing;
+        }
+    }
+}
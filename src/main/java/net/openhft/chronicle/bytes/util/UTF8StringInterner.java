@@ -33,6 +33,10 @@ public class UTF8StringInterner extends AbstractInterner<String> {
         super(capacity);
     }
 
+    public UTF8StringInterner(int capacity, int maxCapacity) throws IllegalArgumentException {
+        super(capacity, maxCapacity);
+    }
+
     @SuppressWarnings("rawtypes")
     @Override
     @NotNull
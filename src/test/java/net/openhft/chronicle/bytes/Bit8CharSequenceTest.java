@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("rawtypes")
+public class Bit8CharSequenceTest {
+
+    @Test
+    public void mapLookup() {
+        Map<Bit8CharSequence, Integer> map = new HashMap<>();
+        String[] keys = {"EURUSD", "GBPUSD", "USDJPY", "a longer key of more than eight bytes", ""};
+        for (int i = 0; i < keys.length; i++)
+            map.put(Bit8CharSequence.copyOf(keys[i]), i);
+
+        Bytes bytes = Bytes.allocateElasticDirect();
+        Bit8CharSequence cs = new Bit8CharSequence();
+        try {
+            for (String key : keys)
+                bytes.write8bit(key);
+            bytes.write8bit((String) null);
+            for (int i = 0; i < keys.length; i++) {
+                assertTrue(bytes.read8bit(cs));
+                assertEquals(keys[i].length(), cs.length());
+                assertEquals(keys[i], cs.toString());
+                assertTrue(cs.contentEquals(keys[i]));
+                assertEquals(Integer.valueOf(i), map.get(cs));
+            }
+            assertFalse(bytes.read8bit(cs));
+            assertEquals(0, cs.length());
+            assertNull(map.get(Bit8CharSequence.copyOf("EURGBP")));
+        } finally {
+            bytes.release();
+        }
+    }
+
+    @Test
+    public void charsAndSubSequence() {
+        Bit8CharSequence cs = Bit8CharSequence.copyOf("caf\u00e9 au lait");
+        assertEquals('\u00e9', cs.charAt(3));
+        Bit8CharSequence sub = cs.subSequence(5, 7);
+        assertEquals("au", sub.toString());
+        assertEquals(Bit8CharSequence.copyOf("au"), sub);
+        assertEquals(Bit8CharSequence.copyOf("au").hashCode(), sub.hashCode());
+        assertFalse(sub.contentEquals("av"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void charAtOutOfBounds() {
+        Bit8CharSequence.copyOf("abc").charAt(3);
+    }
+
+    @Test
+    public void compareTo() {
+        Random rand = new Random(1);
+        for (int t = 0; t < 10_000; t++) {
+            String a = randomText(rand), b = randomText(rand);
+            int expected = Integer.signum(a.compareTo(b));
+            Bit8CharSequence csa = Bit8CharSequence.copyOf(a);
+            assertEquals(a + " " + b, expected, Integer.signum(csa.compareTo(Bit8CharSequence.copyOf(b))));
+            assertEquals(a + " " + b, expected, Integer.signum(csa.compareTo(b)));
+            assertEquals(expected == 0, csa.equals(Bit8CharSequence.copyOf(b)));
+        }
+    }
+
+    private static String randomText(Random rand) {
+        StringBuilder sb = new StringBuilder();
+        int length = rand.nextInt(20);
+        for (int i = 0; i < length; i++)
+            // few enough chars to share long prefixes, some of them above 127
+            sb.append(rand.nextInt(8) == 0 ? (char) (0xF0 + rand.nextInt(4)) : (char) ('a' + rand.nextInt(3)));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes;
+
+import org.junit.Test;
+
+import java.nio.BufferUnderflowException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("rawtypes")
+public class BitBytesTest {
+
+    @Test
+    public void testRoundTrip() {
+        Bytes bytes = Bytes.allocateElasticDirect();
+        try {
+            Random rand = new Random(1);
+            int[] widths = new int[1000];
+            long[] values = new long[widths.length];
+            long totalBits = 0;
+            BitBytes bits = new BitBytes(bytes);
+            for (int i = 0; i < widths.length; i++) {
+                widths[i] = 1 + rand.nextInt(64);
+                values[i] = rand.nextLong();
+                bits.writeBits(values[i], widths[i]);
+                totalBits += widths[i];
+            }
+            bits.flush();
+            assertEquals(0, bits.writeBitsBuffered());
+            assertEquals((totalBits + 7) / 8, bytes.writePosition());
+            bytes.writeInt(0x12345678);
+
+            for (int i = 0; i < widths.length; i++) {
+                long expected = widths[i] == 64 ? values[i] : values[i] & ((1L << widths[i]) - 1);
+                assertEquals(expected, bits.readBits(widths[i]));
+            }
+            // the whole bytes loaded past the last bit are given back
+            bits.readAlign();
+            assertEquals(0x12345678, bytes.readInt());
+        } finally {
+            bytes.release();
+        }
+    }
+
+    @Test
+    public void testMostSignificantBitFirst() {
+        Bytes bytes = Bytes.elasticHeapByteBuffer(16);
+        try {
+            new BitBytes(bytes)
+                    .writeBit(true)
+                    .writeBits(0, 3)
+                    .writeBits(-1, 12)
+                    .writeBits(5, 3)
+                    .flush();
+            assertEquals(3, bytes.writePosition());
+            assertEquals(0x8F, bytes.readUnsignedByte(0));
+            assertEquals(0xFF, bytes.readUnsignedByte(1));
+            assertEquals(0xA0, bytes.readUnsignedByte(2));
+
+            BitBytes bits = new BitBytes(bytes);
+            assertTrue(bits.readBit());
+            assertEquals(0, bits.readBits(3));
+            assertEquals(-1, bits.readSignedBits(12));
+            assertEquals(-3, bits.readSignedBits(3));
+            assertEquals(0, bits.readBits(5));
+        } finally {
+            bytes.release();
+        }
+    }
+
+    @Test(expected = BufferUnderflowException.class)
+    public void testReadPastTheEnd() {
+        Bytes bytes = Bytes.allocateElasticDirect();
+        try {
+            BitBytes bits = new BitBytes(bytes).writeBits(1, 7).flush();
+            bits.readBits(7);
+            bits.readBits(2);
+        } finally {
+            bytes.release();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWidth() {
+        Bytes bytes = Bytes.allocateElasticDirect();
+        try {
+            new BitBytes(bytes).writeBits(1, 65);
+        } finally {
+            bytes.release();
+        }
+    }
+}
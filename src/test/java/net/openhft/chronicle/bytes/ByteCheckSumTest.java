@@ -28,4 +28,24 @@ public class ByteCheckSumTest {
         assertEquals(('c' + 'd') & 0xff, bytes.byteCheckSum(2, 4));
         assertEquals(('c') & 0xff, bytes.byteCheckSum(2, 3));
     }
+
+    @Test
+    public void testLong() {
+        Bytes direct = Bytes.allocateElasticDirect();
+        Bytes heap = Bytes.elasticHeapByteBuffer(32);
+        // long enough to need several rounds of partial sums, with every byte value including negative ones.
+        for (int i = 0; i < 10_003; i++) {
+            direct.writeByte((byte) (i * 7));
+            heap.writeByte((byte) (i * 7));
+        }
+        int sum = 0;
+        for (int i = 0; i < 10_003; i++)
+            sum += (byte) (i * 7);
+        assertEquals(sum & 0xff, direct.byteCheckSum());
+        assertEquals(sum & 0xff, heap.byteCheckSum());
+        for (int start = 0; start < 9; start++)
+            assertEquals(heap.byteCheckSum(start, 10_000), direct.byteCheckSum(start, 10_000));
+        direct.release();
+        heap.release();
+    }
 }
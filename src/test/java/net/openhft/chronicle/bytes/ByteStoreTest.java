@@ -288,6 +288,35 @@ public class ByteStoreTest {
             assertEquals(i, bytes.readStopBit());
     }
 
+    @Test
+    public void testReadWriteStopBitLengths() throws IORuntimeException {
+        // either side of every change in length, written a word at a time where there is room.
+        for (int shift = 0; shift < 64; shift++) {
+            for (long i : new long[]{(1L << shift) - 1, 1L << shift, -(1L << shift), ~(1L << shift)}) {
+                bytes.clear();
+                bytes.writeStopBit(i);
+                bytes.writeStopBit(i >>> 1);
+                assertEquals(BytesUtil.stopBitLength(i) + BytesUtil.stopBitLength(i >>> 1), bytes.writePosition());
+                assertEquals(i, bytes.readStopBit());
+                assertEquals(i >>> 1, bytes.readStopBit());
+                assertEquals(0, bytes.readRemaining());
+
+                // one byte at a time at the end of the buffer.
+                bytes.clear();
+                bytes.writePosition(SIZE - BytesUtil.stopBitLength(i));
+                bytes.readPosition(bytes.writePosition());
+                bytes.writeStopBit(i);
+                assertEquals(SIZE, bytes.writePosition());
+                assertEquals(i, bytes.readStopBit());
+            }
+        }
+        bytes.clear();
+        bytes.writeStopBit(-129L);
+        assertEquals(0x80, bytes.readUnsignedByte());
+        assertEquals(0x81, bytes.readUnsignedByte());
+        assertEquals(0x00, bytes.readUnsignedByte());
+    }
+
     @Test
     public void testReadWriteUnsignedShort() {
         for (int i = 0; i < 32; i += 2)
@@ -28,6 +28,7 @@ import org.junit.runners.Parameterized;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assume.assumeFalse;
@@ -125,6 +126,40 @@ public class ByteStringAppenderTest {
         }
     }
 
+    @Test
+    public void testAppendLongDigits() {
+        assumeFalse(GuardedNativeBytes.areNewGuarded());
+        // either side of every change in the number of digits
+        for (long power = 1; power <= Long.MAX_VALUE / 10; power *= 10) {
+            for (long l : new long[]{power - 1, power, power + 1, -power, 10 * power - 1}) {
+                bytes.clear().append(l);
+                assertEquals(Long.toString(l), bytes.toString());
+                bytes.clear().append((int) l);
+                assertEquals(Integer.toString((int) l), bytes.toString());
+            }
+        }
+        for (long l : new long[]{Long.MAX_VALUE, Long.MIN_VALUE, Integer.MAX_VALUE + 1L, Integer.MIN_VALUE - 1L}) {
+            bytes.clear().append(l);
+            assertEquals(Long.toString(l), bytes.toString());
+        }
+    }
+
+    @Test
+    public void testAppendIso8601() {
+        long epochNanos = 1483228799_123456789L;
+        bytes.appendIso8601(epochNanos, 0);
+        assertEquals("2016-12-31T23:59:59Z", bytes.toString());
+        bytes.clear().appendIso8601(epochNanos, 3);
+        assertEquals("2016-12-31T23:59:59.123Z", bytes.toString());
+        bytes.clear().appendIso8601(epochNanos, 9);
+        assertEquals("2016-12-31T23:59:59.123456789Z", bytes.toString());
+        // the next day, so the cached date is replaced
+        bytes.clear().appendIso8601(epochNanos + 1_000_000_000L, 1);
+        assertEquals("2017-01-01T00:00:00.1Z", bytes.toString());
+        bytes.clear().appendIso8601(-1, 6);
+        assertEquals("1969-12-31T23:59:59.999999Z", bytes.toString());
+    }
+
     @Test
     public void testAppendDouble() throws IORuntimeException {
         assumeFalse(GuardedNativeBytes.areNewGuarded());
@@ -139,6 +174,48 @@ public class ByteStringAppenderTest {
 */
     }
 
+    @Test
+    public void testAppendDoubleShortest() {
+        assumeFalse(GuardedNativeBytes.areNewGuarded());
+        double[] doubles = {0.0, -0.0, 1.0, 0.1, 0.3, 0.1 + 0.2, 1e23, 1e-5, 123456.789, -1.5, 100,
+                4503599627370495.0, 4503599627370496.0, 1e-320, Double.NaN, Double.NEGATIVE_INFINITY};
+        for (double d : doubles)
+            bytes.append(d).append('\n');
+        assertEquals("0.0\n" +
+                "-0.0\n" +
+                "1.0\n" +
+                "0.1\n" +
+                "0.3\n" +
+                "0.30000000000000004\n" +
+                "100000000000000000000000\n" +
+                "0.00001\n" +
+                "123456.789\n" +
+                "-1.5\n" +
+                "100.0\n" +
+                "4503599627370495.0\n" +
+                "4503599627370496\n" +
+                "0.00000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000001\n" +
+                "NaN\n" +
+                "-Infinity\n", bytes.toString());
+
+        // heap and direct memory are written the same way.
+        Bytes heap = Bytes.elasticHeapByteBuffer(64);
+        try {
+            @NotNull Random random = new Random(1);
+            for (int i = 0; i < 100_000; i++) {
+                double d = Double.longBitsToDouble(random.nextLong());
+                if (Double.isNaN(d) || Double.isInfinite(d))
+                    continue;
+                bytes.clear().append(d);
+                assertEquals(d, Double.parseDouble(bytes.toString()), 0.0);
+                heap.clear().append(d);
+                assertEquals(bytes.toString(), heap.toString());
+            }
+        } finally {
+            heap.release();
+        }
+    }
+
     private void testAppendDouble0(double d) throws IORuntimeException {
         bytes.clear();
         bytes.append(d).append(' ');
@@ -26,11 +26,14 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Random;
 
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static net.openhft.chronicle.bytes.StopCharTesters.CONTROL_STOP;
 import static net.openhft.chronicle.bytes.StopCharTesters.SPACE_STOP;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeFalse;
 
 public class ByteStringParserTest {
@@ -72,6 +75,138 @@ public class ByteStringParserTest {
 
     }
 
+    @Test
+    public void testParseLongManyDigits() {
+        // every length of number, so runs of digits start and end at every point in a word.
+        long[] values = new long[20];
+        long value = 0;
+        for (int i = 0; i < values.length; i++) {
+            value = value * 10 + (i + 7) % 10;
+            values[i] = i % 2 == 0 ? value : -value;
+        }
+        for (long v : values)
+            bytes.append(v).append(',');
+        bytes.append("12_345_678_901,9223372036854775807,-9223372036854775808");
+
+        for (long v : values) {
+            long offset = bytes.readPosition();
+            assertEquals(v, bytes.parseLong(offset));
+            assertEquals(v, bytes.parseLong());
+        }
+        assertEquals(12_345_678_901L, bytes.parseLong());
+        assertEquals(Long.MAX_VALUE, bytes.parseLong());
+        assertEquals(Long.MIN_VALUE, bytes.parseLong());
+    }
+
+    @Test
+    public void testParseLongDecimalManyDigits() {
+        bytes.append("1234567890.123456789 12345.6789012 -98765432109876.5");
+        assertEquals(1234567890123456789L, bytes.parseLongDecimal());
+        assertEquals(9, bytes.lastDecimalPlaces());
+        assertEquals(123456789012L, bytes.parseLongDecimal());
+        assertEquals(7, bytes.lastDecimalPlaces());
+        assertEquals(-987654321098765L, bytes.parseLongDecimal());
+        assertEquals(1, bytes.lastDecimalPlaces());
+    }
+
+    @Test
+    public void testParseDoubleManyDigits() {
+        assumeFalse(GuardedNativeBytes.areNewGuarded());
+        bytes.append("123456789.12345 0.000123456789012 98765432109876543210 1.5");
+        assertEquals(123456789.12345, bytes.parseDouble(), Math.ulp(123456789.12345));
+        assertEquals(0.000123456789012, bytes.parseDouble(), Math.ulp(0.000123456789012));
+        assertEquals(98765432109876543210.0, bytes.parseDouble(), Math.ulp(98765432109876543210.0));
+        assertEquals(1.5, bytes.parseDouble(), 0);
+    }
+
+    @Test
+    public void testParseDoubleCorrectlyRounded() {
+        assumeFalse(GuardedNativeBytes.areNewGuarded());
+        String[] numbers = {
+                "0.1", "0.30000000000000004", "9007199254740993", "1.7976931348623157e308",
+                "2.2250738585072014E-308", "4.9e-324", "4e23", "123456789012345678901234567890e-10",
+                "1e+5", "-2.5E-3", "1e400", "1e-400", "-0.0"};
+        for (String number : numbers)
+            bytes.append(number).append(' ');
+        for (String number : numbers)
+            assertEquals(number, Double.doubleToLongBits(Double.parseDouble(number)), Double.doubleToLongBits(bytes.parseDouble()));
+
+        Random rand = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            double d = Double.longBitsToDouble(rand.nextLong());
+            if (Double.isNaN(d) || Double.isInfinite(d))
+                continue;
+            bytes.clear().append(Double.toString(d)).append(' ');
+            assertEquals(Double.toString(d), d, bytes.parseDouble(), 0.0);
+        }
+    }
+
+    @Test
+    public void testParseDoubleDecimalPlaces() {
+        assumeFalse(GuardedNativeBytes.areNewGuarded());
+        bytes.append("1.25 12.500 1e3 0.000123456789012345678901");
+        assertEquals(1.25, bytes.parseDouble(), 0);
+        assertEquals(2, bytes.lastDecimalPlaces());
+        assertEquals(12.5, bytes.parseDouble(), 0);
+        assertEquals(3, bytes.lastDecimalPlaces());
+        assertEquals(1e3, bytes.parseDouble(), 0);
+        assertEquals(0, bytes.lastDecimalPlaces());
+        assertEquals(0.000123456789012345678901, bytes.parseDouble(), 0);
+        assertEquals(24, bytes.lastDecimalPlaces());
+    }
+
+    @Test
+    public void testParseIso8601() {
+        bytes.append("2016-12-31T23:59:59.123Z,2016-12-31 23:59+01:00 2000-02-29T12:00:00.1234567891-05:30");
+        assertEquals(1483228799_123000000L, bytes.parseIso8601ToEpochNanos());
+        assertEquals(1483225140_000000000L, bytes.parseIso8601ToEpochNanos());
+        assertEquals(951845400_123456789L, bytes.parseIso8601ToEpochNanos());
+        assertEquals(0, bytes.readRemaining());
+    }
+
+    @Test
+    public void testAppendParseIso8601() {
+        Random rand = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            long epochNanos = rand.nextLong() / 4;
+            int precision = i % 10;
+            bytes.clear().appendIso8601(epochNanos, precision).append(' ');
+            long expected = epochNanos - Math.floorMod(epochNanos, (long) Math.pow(10, 9 - precision));
+            Instant instant = Instant.ofEpochSecond(Math.floorDiv(expected, 1_000_000_000L), Math.floorMod(expected, 1_000_000_000L));
+            assertEquals(instant, Instant.parse(bytes.toString().trim()));
+            assertEquals(expected, bytes.parseIso8601ToEpochNanos());
+        }
+    }
+
+    @Test(expected = IORuntimeException.class)
+    public void testParseIso8601Invalid() {
+        bytes.append("2016-13-01T00:00:00Z");
+        bytes.parseIso8601ToEpochNanos();
+    }
+
+    @Test
+    public void testParseIso8601Range() {
+        bytes.append("2262-04-11T23:47:16.854775807Z 1677-09-21T00:12:43.145224192Z");
+        assertEquals(Long.MAX_VALUE, bytes.parseIso8601ToEpochNanos());
+        assertEquals(Long.MIN_VALUE, bytes.parseIso8601ToEpochNanos());
+
+        for (String text : new String[]{
+                "2021-02-31T00:00Z",
+                "2100-02-29T00:00Z",
+                "2019-04-31T00:00Z",
+                "2262-04-11T23:47:16.854775808Z",
+                "1677-09-21T00:12:43.145224191Z",
+                "9999-12-31T23:59Z"}) {
+            bytes.clear().append(text);
+            try {
+                bytes.parseIso8601ToEpochNanos();
+                fail(text);
+            } catch (IORuntimeException expected) {
+                // expected
+            }
+        }
+    }
+
     @Test
     public void testParseInt() {
         int expected = 123;
@@ -40,6 +40,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Locale;
+import java.util.Random;
 import java.util.Scanner;
 
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
@@ -182,6 +183,84 @@ public class BytesTest {
         Assert.assertTrue(source.readPosition() == 0);
     }
 
+    @Test
+    public void testIndexOfLongText() {
+        String sourceStr = "The quick brown fox jumps over the lazy dog, the quick brown cat sleeps under the lazy fox";
+        for (String subStr : new String[]{"lazy fox", "cat", "dog,", "The", "x", "foxes", "quick brown c"})
+            testIndexOf(sourceStr, subStr);
+    }
+
+    @Test
+    public void findByte() {
+        Bytes<?> bytes = alloc1.elasticBytes(64);
+        bytes.append("8=FIX.4.2|9=65|35=A|49=SERVER|56=CLIENT|34=177|52=20090107-18:15:16|98=0|108=30|10=062|");
+        String text = bytes.toString();
+        for (char ch : "=|-:Z".toCharArray())
+            assertEquals(text.indexOf(ch), bytes.findByte((byte) ch));
+        bytes.readSkip(20);
+        assertEquals(text.indexOf('|', 20) - 20, bytes.findByte((byte) '|'));
+        bytes.release();
+    }
+
+    @Test
+    public void parse8bitStopChars() {
+        Bytes<?> bytes = alloc1.elasticBytes(64);
+        bytes.append("first,second field,a much longer third field,,last");
+        StringBuilder sb = new StringBuilder();
+        for (String expected : new String[]{"first", "second field", "a much longer third field", "", "last"}) {
+            bytes.parse8bit(sb, StopCharTesters.COMMA_STOP);
+            assertEquals(expected, sb.toString());
+        }
+        assertEquals(0, bytes.readRemaining());
+
+        bytes.clear().append("one line of text\nthe next line\n");
+        assertEquals("one line of text", bytes.parse8bit(StopCharTesters.CONTROL_STOP));
+        Bytes<?> to = alloc1.elasticBytes(32);
+        bytes.parse8bit(to, StopCharTesters.CONTROL_STOP);
+        assertEquals("the next line", to.toString());
+        assertEquals(0, bytes.readRemaining());
+        to.release();
+        bytes.release();
+    }
+
+    @Test
+    public void parseUtf8StopChars() {
+        Bytes<?> bytes = alloc1.elasticBytes(64);
+        bytes.appendUtf8("a plain ascii field,caf\u00e9 au lait,\u20ac100 and more text");
+        assertEquals("a plain ascii field", bytes.parseUtf8(StopCharTesters.COMMA_STOP));
+        assertEquals("caf\u00e9 au lait", bytes.parseUtf8(StopCharTesters.COMMA_STOP));
+        assertEquals("\u20ac100 and more text", bytes.parseUtf8(StopCharTesters.COMMA_STOP));
+        bytes.release();
+    }
+
+    @Test
+    public void contentEqualsLong() {
+        Bytes<?> a = alloc1.elasticBytes(64);
+        Bytes<?> b = alloc1.elasticBytes(64);
+        a.append("a longer piece of text which is compared eight bytes at a time");
+        b.append("a longer piece of text which is compared eight bytes at a time");
+        assertTrue(a.contentEquals(b));
+        b.writeUnsignedByte(b.writePosition() - 3, 'X');
+        assertFalse(a.contentEquals(b));
+        b.readSkip(1);
+        a.readSkip(1);
+        b.writeUnsignedByte(b.writePosition() - 3, 'i');
+        assertTrue(a.contentEquals(b));
+        a.release();
+        b.release();
+    }
+
+    @Test
+    public void zeroOut() {
+        Bytes<?> bytes = alloc1.elasticBytes(64);
+        for (int i = 0; i < 64; i++)
+            bytes.writeByte((byte) -1);
+        bytes.zeroOut(5, 50);
+        for (int i = 0; i < 64; i++)
+            assertEquals("i: " + i, i >= 5 && i < 50 ? 0 : -1, bytes.readByte(i));
+        bytes.release();
+    }
+
     @Test
     public void writeAdv() {
         Bytes<?> bytes = alloc1.fixedBytes(32);
@@ -423,6 +502,226 @@ public class BytesTest {
         }
     }
 
+    @Test
+    public void testStopBitArrays() throws IORuntimeException {
+        Bytes b = alloc1.elasticBytes(1);
+        try {
+            Random rand = new Random(1);
+            long[] longs = new long[1000];
+            int[] ints = new int[longs.length];
+            long time = 1_500_000_000_000_000_000L;
+            for (int i = 0; i < longs.length; i++) {
+                longs[i] = rand.nextLong() >> rand.nextInt(64);
+                ints[i] = (int) longs[i];
+            }
+            b.writeStopBitArray(longs, 0, longs.length);
+            b.writeStopBitArray(ints, 1, ints.length);
+            b.writeZigZagStopBitArray(longs, 0, longs.length);
+            for (int i = 0; i < longs.length; i++)
+                assertEquals(longs[i], b.readStopBit());
+
+            int[] ints2 = new int[ints.length];
+            b.readStopBitArray(ints2, 1, ints.length);
+            assertEquals(0, ints2[0]);
+            assertArrayEquals(Arrays.copyOfRange(ints, 1, ints.length), Arrays.copyOfRange(ints2, 1, ints.length));
+            long[] longs2 = new long[longs.length];
+            b.readZigZagStopBitArray(longs2, 0, longs.length);
+            assertArrayEquals(longs, longs2);
+            assertEquals(0, b.readRemaining());
+
+            // timestamps a few microseconds apart take two or three bytes each.
+            b.clear();
+            for (int i = 0; i < longs.length; i++)
+                longs[i] = time += rand.nextInt(50_000);
+            b.writeDeltaStopBitArray(longs, 0, longs.length);
+            assertTrue(b.readRemaining() < 3 * longs.length + 10);
+            b.readDeltaStopBitArray(longs2, 0, longs.length);
+            assertArrayEquals(longs, longs2);
+        } finally {
+            b.release();
+        }
+    }
+
+    @Test
+    public void testStopBitArraysGuarded() throws IORuntimeException {
+        Bytes b = new GuardedNativeBytes<>(NativeBytesStore.nativeStoreWithFixedCapacity(256));
+        try {
+            long[] longs = {0, 1, -1, 127, 128, 1L << 40, Long.MIN_VALUE, Long.MAX_VALUE};
+            // mixing arrays and single values, each with its marker.
+            b.writeStopBitArray(longs, 0, longs.length);
+            for (long l : longs)
+                assertEquals(l, b.readStopBit());
+            for (long l : longs)
+                b.writeStopBit(l);
+            long[] longs2 = new long[longs.length];
+            b.readStopBitArray(longs2, 0, longs.length);
+            assertArrayEquals(longs, longs2);
+            assertEquals(0, b.readRemaining());
+        } finally {
+            b.release();
+        }
+    }
+
+    @Test
+    public void testStopBitInPlace() throws IORuntimeException {
+        Bytes b = alloc1.elasticBytes(64);
+        try {
+            long[] values = {0, 127, 1L << 14, 1L << 35, -1, Long.MIN_VALUE};
+            for (long value : values) {
+                b.clear();
+                b.append("0123456789abcdefghij");
+                // rewrite the start, leaving the rest as it was.
+                b.writePosition(0);
+                b.writeStopBit(value);
+                long length = b.writePosition();
+                b.writePosition(20);
+                assertEquals(value, b.readStopBit());
+                assertEquals("0123456789abcdefghij".substring((int) length), b.toString());
+            }
+
+            b.clear();
+            b.append("0123456789abcdefghij");
+            b.writePosition(0);
+            b.writeStopBitArray(new long[]{1, 300}, 0, 2);
+            b.writePosition(20);
+            assertEquals(1, b.readStopBit());
+            assertEquals(300, b.readStopBit());
+            assertEquals("3456789abcdefghij", b.toString());
+        } finally {
+            b.release();
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testStopBitArrayOutOfBounds() {
+        Bytes b = alloc1.elasticBytes(1);
+        try {
+            b.writeStopBitArray(new long[4], 2, 5);
+        } finally {
+            b.release();
+        }
+    }
+
+    @Test
+    public void testUtf8MostlyAscii() {
+        Bytes b = alloc1.elasticBytes(64);
+        StringBuilder sb = new StringBuilder();
+        try {
+            for (int length = 0; length < 40; length++) {
+                for (int at = -1; at < length; at++) {
+                    for (char ch : new char[]{'\u00e9', '\u20ac'}) {
+                        StringBuilder text = new StringBuilder();
+                        for (int i = 0; i < length; i++)
+                            text.append(i == at ? ch : (char) ('a' + i % 26));
+                        String s = text.toString();
+                        b.clear();
+                        b.writeUtf8(s);
+                        b.writeUtf8((CharSequence) text);
+                        assertEquals(s, b.readUtf8());
+                        assertTrue(b.readUtf8(sb));
+                        assertEquals(s, sb.toString());
+                        assertTrue(b.readUtf8(0L, sb) > 0);
+                        assertEquals(s, sb.toString());
+                        assertEquals(0, b.readRemaining());
+                    }
+                }
+            }
+        } finally {
+            b.release();
+        }
+    }
+
+    @Test
+    public void testIsValidUtf8() {
+        Bytes b = alloc1.elasticBytes(64);
+        try {
+            b.append("plain ascii text, long enough to be checked a word at a time");
+            assertTrue(b.isValidUtf8(b.readPosition(), b.readRemaining()));
+            b.clear().appendUtf8("caf\u00e9 \u20ac100 and more ascii text after it ").appendUtf8(0x1F600);
+            assertTrue(b.isValidUtf8(b.readPosition(), b.readRemaining()));
+            assertTrue(b.isValidUtf8(b.readPosition(), 0));
+            // the range ends part way through the \u20ac
+            assertFalse(b.isValidUtf8(b.readPosition(), 8));
+
+            int[][] invalid = {
+                    {0x80}, // a continuation byte on its own
+                    {0xC3}, // not followed by a continuation byte
+                    {0xC0, 0xAF}, // overlong '/'
+                    {0xE0, 0x80, 0xAF}, // overlong '/'
+                    {0xED, 0xA0, 0x80}, // a surrogate
+                    {0xF4, 0x90, 0x80, 0x80}, // above U+10FFFF
+                    {0xF5, 0x80, 0x80, 0x80},
+                    {0xE2, 0x82, 0x41},
+                    {0xFF}};
+            for (int[] seq : invalid) {
+                b.clear().append("0123456789");
+                for (int i : seq)
+                    b.writeUnsignedByte(i);
+                b.append("abc");
+                assertFalse(Arrays.toString(seq), b.isValidUtf8(b.readPosition(), b.readRemaining()));
+                // valid up to the sequence.
+                assertTrue(b.isValidUtf8(b.readPosition(), 10));
+            }
+        } finally {
+            b.release();
+        }
+    }
+
+    @Test
+    public void testReadUtf8Strict() {
+        Bytes b = alloc1.elasticBytes(64);
+        StringBuilder sb = new StringBuilder();
+        try {
+            b.writeUtf8("caf\u00e9 au lait");
+            b.writeUtf8(null);
+            b.writeStopBit(5);
+            b.append("ab");
+            b.writeUnsignedByte(0xC0).writeUnsignedByte(0xAF);
+            b.append("c");
+            assertTrue(b.readUtf8Strict(sb));
+            assertEquals("caf\u00e9 au lait", sb.toString());
+            assertFalse(b.readUtf8Strict(sb));
+            long position = b.readPosition();
+            try {
+                b.readUtf8Strict(sb);
+                fail();
+            } catch (UTFDataFormatRuntimeException expected) {
+                assertEquals(position, b.readPosition());
+            }
+        } finally {
+            b.release();
+        }
+    }
+
+    @Test
+    public void testReadUtf8StrictSupplementary() {
+        Bytes b = alloc1.elasticBytes(64);
+        StringBuilder sb = new StringBuilder();
+        try {
+            // written as a surrogate pair of three bytes each
+            b.writeUtf8("smile \uD83D\uDE00");
+            // written as four bytes
+            b.writeStopBit(4).appendUtf8(0x1F600);
+            // a high surrogate on its own
+            b.writeUtf8("\uD83D!");
+            assertTrue(b.readUtf8Strict(sb));
+            assertEquals("smile \uD83D\uDE00", sb.toString());
+            assertTrue(b.readUtf8Strict(sb));
+            assertEquals("\uD83D\uDE00", sb.toString());
+            long position = b.readPosition();
+            try {
+                b.readUtf8Strict(sb);
+                fail();
+            } catch (UTFDataFormatRuntimeException expected) {
+                assertEquals(position, b.readPosition());
+            }
+            // the lenient read still accepts it.
+            assertEquals("\uD83D!", b.readUtf8());
+        } finally {
+            b.release();
+        }
+    }
+
     private void testSBD(@NotNull Bytes b, double v, String s) throws IORuntimeException {
         b.clear();
         b.writeStopBit(v);
@@ -5,8 +5,11 @@ import org.junit.Test;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /*
  * Created by Peter Lawrey on 17/05/2017.
@@ -28,4 +31,25 @@ public class BytesUtilTest {
         assertTrue(new File(file).exists());
         assertTrue(new File(file).canWrite());
     }
+
+    @Test
+    public void bytesEqualChecksRange() {
+        Bytes a = Bytes.allocateElasticDirect(64);
+        Bytes b = Bytes.allocateElasticDirect(64);
+        try {
+            a.append("0123456789abcdef");
+            b.append("0123456789abcdeF");
+            assertTrue(BytesUtil.bytesEqual(a, 0, b, 0, 15));
+            assertFalse(BytesUtil.bytesEqual(a, 0, b, 0, 16));
+            try {
+                BytesUtil.bytesEqual(a, 8, b, 8, 16);
+                fail();
+            } catch (BufferUnderflowException expected) {
+                // the range ends past the readLimit
+            }
+        } finally {
+            a.release();
+            b.release();
+        }
+    }
 }
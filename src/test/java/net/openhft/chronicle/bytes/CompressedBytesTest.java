@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.bytes.util.BlockCompression;
+import net.openhft.chronicle.bytes.util.Compressions;
+import net.openhft.chronicle.core.OS;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("rawtypes")
+public class CompressedBytesTest {
+    private static final int BLOCK_SIZE = 16 << 10;
+
+    private static File writeFile(int longs) throws IOException {
+        Bytes from = Bytes.allocateElasticDirect(longs * 8L);
+        Bytes frame = Bytes.allocateElasticDirect();
+        try {
+            for (int i = 0; i < longs; i++)
+                from.writeLong(i * 3L);
+            new BlockCompression(Compressions.LZ4, BLOCK_SIZE).compress(from, frame);
+            File file = new File(OS.TARGET + "/compressed-" + System.nanoTime());
+            file.deleteOnExit();
+            Files.write(file.toPath(), frame.toByteArray());
+            return file;
+        } finally {
+            from.release();
+            frame.release();
+        }
+    }
+
+    @Test
+    public void randomAccess() throws IOException {
+        int longs = 100_000;
+        File file = writeFile(longs);
+        try (CompressedBytes bytes = CompressedBytes.readOnly(file)) {
+            assertEquals(longs * 8L, bytes.readRemaining());
+            assertEquals(30_000L, bytes.readLong(80_000));
+            // the block and the next one for the overlap
+            assertEquals(2, bytes.blocksUncompressed());
+
+            // reading the last block doesn't need the others
+            bytes.readPosition((longs - 1) * 8L);
+            assertEquals((longs - 1) * 3L, bytes.readLong());
+            assertEquals(0, bytes.readRemaining());
+            assertEquals(3, bytes.blocksUncompressed());
+
+            // cached
+            assertEquals(30_003L, bytes.readLong(80_008));
+            assertEquals(3, bytes.blocksUncompressed());
+        }
+    }
+
+    @Test
+    public void sequential() throws IOException {
+        int longs = 50_000;
+        File file = writeFile(longs);
+        try (CompressedBytes bytes = CompressedBytes.readOnly(file, null, 2)) {
+            for (int i = 0; i < longs; i++)
+                assertEquals(i * 3L, bytes.readLong());
+            // each block is uncompressed once, as the overlap of the block before it or on its own.
+            assertEquals((longs * 8L + BLOCK_SIZE - 1) / BLOCK_SIZE, bytes.blocksUncompressed());
+        }
+    }
+
+    @Test
+    public void acrossBlocks() throws IOException {
+        File file = writeFile(10_000);
+        try (CompressedBytes bytes = CompressedBytes.readOnly(file)) {
+            // little endian, starts 4 bytes before the end of the first block.
+            long offset = BLOCK_SIZE - 4;
+            long first = offset / 8 * 3, second = first + 3;
+            assertEquals((first >>> 32) | (second << 32), bytes.readLong(offset));
+        }
+    }
+
+    @Test(expected = BufferUnderflowException.class)
+    public void pastTheEnd() throws IOException {
+        File file = writeFile(1000);
+        try (CompressedBytes bytes = CompressedBytes.readOnly(file)) {
+            bytes.readLong(8000 - 4);
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void readOnly() throws IOException {
+        File file = writeFile(1000);
+        try (CompressedBytes bytes = CompressedBytes.readOnly(file)) {
+            bytes.writeLong(0, 1L);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("rawtypes")
+public class DelimitedTokenizerTest {
+
+    @Test
+    public void quotedFields() {
+        Bytes in = Bytes.from("symbol,qty,price\n" +
+                "EURUSD,1000000,1.1234\r\n" +
+                "\"a, quoted \"\"name\"\"\",\"2000\",-0.5\n" +
+                "\"two\nlines\",,\n" +
+                "last,3,4");
+        Bytes field = Bytes.allocateElasticDirect();
+        try {
+            DelimitedTokenizer tokenizer = new DelimitedTokenizer(in);
+            // the header
+            assertTrue(tokenizer.nextRecord());
+
+            assertTrue(tokenizer.nextRecord());
+            tokenizer.nextField(field);
+            assertEquals("EURUSD", field.toString());
+            assertEquals(1_000_000L, tokenizer.nextLong());
+            assertEquals(1.1234, tokenizer.nextDouble(), 0.0);
+            assertFalse(tokenizer.hasNextField());
+
+            assertTrue(tokenizer.nextRecord());
+            tokenizer.nextField(field);
+            assertEquals("a, quoted \"name\"", field.toString());
+            assertEquals(2000L, tokenizer.nextLong());
+            assertEquals(-0.5, tokenizer.nextDouble(), 0.0);
+
+            assertTrue(tokenizer.nextRecord());
+            tokenizer.nextField(field);
+            assertEquals("two\nlines", field.toString());
+            assertEquals(0L, tokenizer.nextLong());
+            assertTrue(tokenizer.hasNextField());
+            assertTrue(Double.isNaN(tokenizer.nextDouble()));
+            assertFalse(tokenizer.hasNextField());
+
+            assertTrue(tokenizer.nextRecord());
+            tokenizer.nextField(field);
+            assertEquals("last", field.toString());
+            // the rest of the record is skipped
+            assertFalse(tokenizer.nextRecord());
+        } finally {
+            in.release();
+            field.release();
+        }
+    }
+
+    @Test
+    public void separatorAndEscapes() {
+        Bytes in = Bytes.from("a\\|b|c\\\\d|\"e\\\"f\"\n");
+        Bytes field = Bytes.allocateElasticDirect();
+        try {
+            DelimitedTokenizer tokenizer = new DelimitedTokenizer(in).separator('|').escaping(true);
+            assertTrue(tokenizer.nextRecord());
+            tokenizer.nextField(field);
+            assertEquals("a|b", field.toString());
+            tokenizer.nextField(field);
+            assertEquals("c\\d", field.toString());
+            tokenizer.nextField(field);
+            assertEquals("e\"f", field.toString());
+            assertFalse(tokenizer.hasNextField());
+            assertFalse(tokenizer.nextRecord());
+        } finally {
+            in.release();
+            field.release();
+        }
+    }
+
+    @Test(expected = IORuntimeException.class)
+    public void unterminatedQuote() {
+        Bytes in = Bytes.from("\"no closing quote,1\n");
+        try {
+            DelimitedTokenizer tokenizer = new DelimitedTokenizer(in);
+            assertTrue(tokenizer.nextRecord());
+            tokenizer.skipField();
+        } finally {
+            in.release();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void pastTheEndOfTheRecord() {
+        Bytes in = Bytes.from("1\n2\n");
+        try {
+            DelimitedTokenizer tokenizer = new DelimitedTokenizer(in);
+            assertTrue(tokenizer.nextRecord());
+            assertEquals(1L, tokenizer.nextLong());
+            tokenizer.nextLong();
+        } finally {
+            in.release();
+        }
+    }
+
+    @Test
+    public void mappedFile() throws IOException {
+        StringBuilder text = new StringBuilder();
+        int records = 20_000;
+        for (int i = 0; i < records; i++)
+            text.append("id").append(i).append(",\"").append(i % 7).append("\",").append(i / 4.0).append('\n');
+        File file = new File(OS.TARGET + "/delimited-" + System.nanoTime() + ".csv");
+        file.deleteOnExit();
+        Files.write(file.toPath(), text.toString().getBytes(ISO_8859_1));
+
+        MappedBytes in = MappedBytes.readOnly(file);
+        Bytes field = Bytes.allocateElasticDirect();
+        try {
+            in.readLimit(file.length());
+            DelimitedTokenizer tokenizer = new DelimitedTokenizer(in);
+            int count = 0;
+            while (tokenizer.nextRecord()) {
+                tokenizer.nextField(field);
+                assertEquals("id" + count, field.toString());
+                assertEquals(count % 7, tokenizer.nextLong());
+                assertEquals(count / 4.0, tokenizer.nextDouble(), 0.0);
+                count++;
+            }
+            assertEquals(records, count);
+        } finally {
+            in.release();
+            field.release();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.openhft.chronicle.bytes;
+
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.junit.Test;
+
+import static net.openhft.chronicle.bytes.JsonTokenizer.Token.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("rawtypes")
+public class JsonTokenizerTest {
+
+    @Test
+    public void testTokens() {
+        Bytes bytes = Bytes.from("{\"id\":123,\"price\":-1.25e2,\"tags\":[\"a\",true,false,null],\"empty\":{},\"none\":[]}");
+        try {
+            JsonTokenizer json = new JsonTokenizer(bytes);
+            StringBuilder sb = new StringBuilder();
+            assertEquals(START_OBJECT, json.next());
+            assertEquals(1, json.depth());
+            assertEquals(NAME, json.next());
+            assertTrue(json.textEquals("id"));
+            assertFalse(json.textEquals("idx"));
+            assertEquals(NUMBER, json.next());
+            assertEquals(123, json.longValue());
+            assertEquals(NAME, json.next());
+            json.stringValue(sb);
+            assertEquals("price", sb.toString());
+            assertEquals(NUMBER, json.next());
+            assertEquals(-125.0, json.doubleValue(), 0.0);
+            assertEquals(NAME, json.next());
+            assertEquals(START_ARRAY, json.next());
+            assertEquals(2, json.depth());
+            assertEquals(STRING, json.next());
+            assertEquals(1, json.tokenLength());
+            assertEquals('a', bytes.readByte(json.tokenOffset()));
+            assertEquals(TRUE, json.next());
+            assertEquals(FALSE, json.next());
+            assertEquals(NULL, json.next());
+            assertEquals(END_ARRAY, json.next());
+            assertEquals(NAME, json.next());
+            assertEquals(START_OBJECT, json.next());
+            assertEquals(END_OBJECT, json.next());
+            assertEquals(NAME, json.next());
+            assertEquals(START_ARRAY, json.next());
+            assertEquals(END_ARRAY, json.next());
+            assertEquals(END_OBJECT, json.next());
+            assertEquals(0, json.depth());
+            assertEquals(END, json.next());
+            assertEquals(0, bytes.readRemaining());
+        } finally {
+            bytes.release();
+        }
+    }
+
+    @Test
+    public void testEscapes() {
+        Bytes bytes = Bytes.elasticByteBuffer();
+        bytes.appendUtf8("[\"caf\\u00e9 \\\"au lait\\\"\\n\", \"na\u00efve\", \"a\\\\b\\/c\\td\"]");
+        try {
+            JsonTokenizer json = new JsonTokenizer(bytes);
+            StringBuilder sb = new StringBuilder();
+            assertEquals(START_ARRAY, json.next());
+            assertEquals(STRING, json.next());
+            assertTrue(json.hasEscapes());
+            json.stringValue(sb);
+            assertEquals("caf\u00e9 \"au lait\"\n", sb.toString());
+            assertTrue(json.textEquals("caf\u00e9 \"au lait\"\n"));
+            assertEquals(STRING, json.next());
+            assertFalse(json.hasEscapes());
+            assertTrue(json.textEquals("na\u00efve"));
+            json.stringValue(sb);
+            assertEquals("na\u00efve", sb.toString());
+            assertEquals(STRING, json.next());
+            json.stringValue(sb);
+            assertEquals("a\\b/c\td", sb.toString());
+            assertEquals(END_ARRAY, json.next());
+            assertEquals(END, json.next());
+        } finally {
+            bytes.release();
+        }
+    }
+
+    @Test
+    public void testWhitespaceAndSequence() {
+        Bytes bytes = Bytes.from("{\n" +
+                "        \"a\" :    1 ,\r\n" +
+                "\t\"b\": [ 2 ,  3 ]\n" +
+                "}\n" +
+                "{\"a\":4}\n" +
+                "                                 ");
+        try {
+            JsonTokenizer json = new JsonTokenizer(bytes);
+            long sum = 0;
+            int objects = 0;
+            for (JsonTokenizer.Token token; (token = json.next()) != END; ) {
+                if (token == NUMBER)
+                    sum += json.longValue();
+                else if (token == END_OBJECT && json.depth() == 0)
+                    objects++;
+            }
+            assertEquals(10, sum);
+            assertEquals(2, objects);
+        } finally {
+            bytes.release();
+        }
+    }
+
+    @Test
+    public void testSkipValue() {
+        Bytes bytes = Bytes.from("{\"skip\":{\"x\":[1,{\"y\":[]}],\"z\":\"}\"},\"keep\":42,\"also\":[1,2]}");
+        try {
+            JsonTokenizer json = new JsonTokenizer(bytes);
+            assertEquals(START_OBJECT, json.next());
+            assertEquals(NAME, json.next());
+            json.skipValue();
+            assertEquals(NAME, json.next());
+            assertTrue(json.textEquals("keep"));
+            assertEquals(NUMBER, json.next());
+            assertEquals(42, json.longValue());
+            assertEquals(NAME, json.next());
+            json.skipValue();
+            assertEquals(END_OBJECT, json.next());
+            assertEquals(END, json.next());
+        } finally {
+            bytes.release();
+        }
+    }
+
+    @Test
+    public void testTextEqualsNotText() {
+        Bytes bytes = Bytes.from("[123,true,null]");
+        try {
+            JsonTokenizer json = new JsonTokenizer(bytes);
+            assertEquals(START_ARRAY, json.next());
+            for (String text : new String[]{"123", "true", "null"}) {
+                json.next();
+                try {
+                    json.textEquals(text);
+                    fail(text);
+                } catch (IllegalStateException expected) {
+                    // only a string or name has text
+                }
+            }
+            assertEquals(END_ARRAY, json.next());
+        } finally {
+            bytes.release();
+        }
+    }
+
+    @Test
+    public void testErrors() {
+        for (String text : new String[]{
+                "[1,2,]",
+                "{\"a\":1,}",
+                "[1}",
+                "{\"a\" 1}",
+                "[\"abc",
+                "[\"abc\\\"]",
+                "[1 2]",
+                "[tru]",
+                "{\"a\":1",
+                "]"}) {
+            Bytes bytes = Bytes.from(text);
+            try {
+                JsonTokenizer json = new JsonTokenizer(bytes);
+                while (json.next() != END) {
+                    // read everything
+                }
+                fail(text);
+            } catch (IORuntimeException expected) {
+                // expected
+            } finally {
+                bytes.release();
+            }
+        }
+    }
+}
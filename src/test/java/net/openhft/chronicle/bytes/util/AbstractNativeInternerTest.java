@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes.util;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("rawtypes")
+public class AbstractNativeInternerTest {
+
+    @NotNull
+    private static AbstractNativeInterner<String> newInterner(int capacity, int maxKeyLength) {
+        return new AbstractNativeInterner<String>(capacity, maxKeyLength) {
+            @NotNull
+            @Override
+            protected String getValue(@NotNull BytesStore bs, int length) {
+                StringBuilder sb = new StringBuilder(length);
+                for (int i = 0; i < length; i++)
+                    sb.append((char) bs.readUnsignedByte(bs.readPosition() + i));
+                return sb.toString();
+            }
+        };
+    }
+
+    @Test
+    public void testIntern() {
+        AbstractNativeInterner<String> si = newInterner(128, 16);
+        try {
+            Bytes b = Bytes.from("Hello World");
+            b.readSkip(6);
+            String s = si.intern(b);
+            String s2 = si.intern(b);
+            b.release();
+            assertEquals("World", s);
+            assertSame(s, s2);
+            assertEquals(1, si.missCount());
+            assertEquals(1, si.hitCount());
+            assertEquals(1, si.valueCount());
+
+            Bytes b2 = Bytes.from("World");
+            assertSame(s, si.intern(b2));
+            b2.release();
+        } finally {
+            si.close();
+        }
+    }
+
+    @Test
+    public void testSimilarKeys() {
+        AbstractNativeInterner<String> si = newInterner(128, 64);
+        try {
+            Bytes b1 = Bytes.from("TW-TRSY-20181217-NY572677_3256N1");
+            Bytes b2 = Bytes.from("TW-TRSY-20181217-NY572677_3256N15");
+            assertEquals(b1.toString(), si.intern(b1));
+            assertEquals(b2.toString(), si.intern(b2));
+            assertEquals(b1.toString(), si.intern(b1));
+            b1.release();
+            b2.release();
+        } finally {
+            si.close();
+        }
+    }
+
+    @Test
+    public void testKeyTooLong() {
+        AbstractNativeInterner<String> si = newInterner(128, 8);
+        try {
+            Bytes b = Bytes.from("longer than eight");
+            String s = si.intern(b);
+            assertEquals("longer than eight", s);
+            assertNotSame(s, si.intern(b));
+            assertEquals(0, si.valueCount());
+            b.release();
+        } finally {
+            si.close();
+        }
+    }
+
+    @Test
+    public void testManyKeys() {
+        AbstractNativeInterner<String> si = newInterner(128, 8);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                Bytes b = Bytes.from("key" + i);
+                assertEquals("key" + i, si.intern(b));
+                b.release();
+            }
+            assertTrue(si.valueCount() <= 128);
+            assertEquals(1000, si.missCount() + si.hitCount());
+            assertEquals(si.missCount(), si.valueCount() + si.evictionCount());
+        } finally {
+            si.close();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosed() {
+        AbstractNativeInterner<String> si = newInterner(128, 8);
+        si.close();
+        Bytes b = Bytes.from("key");
+        try {
+            si.intern(b);
+        } finally {
+            b.release();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes.util;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@SuppressWarnings("rawtypes")
+public class Bit8StringInternerTest {
+
+    @Test
+    public void testStatistics() {
+        @NotNull Bit8StringInterner si = new Bit8StringInterner(128);
+        Bytes b = Bytes.from("hello");
+        String s = si.intern(b);
+        String s2 = si.intern(b);
+        b.release();
+        assertEquals("hello", s);
+        assertSame(s, s2);
+        assertEquals(1, si.missCount());
+        assertEquals(1, si.hitCount());
+        assertEquals(0, si.evictionCount());
+        assertEquals(1, si.valueCount());
+
+        si.resetStatistics();
+        assertEquals(0, si.missCount());
+        assertEquals(0, si.hitCount());
+    }
+
+    @Test
+    public void testFixedSize() {
+        @NotNull Bit8StringInterner si = new Bit8StringInterner(128);
+        internKeys(si, 1000, 4);
+        assertEquals(128, si.capacity());
+        assertEquals(0, si.resizeCount());
+        assertTrue(si.evictionCount() > 0);
+        assertEquals(si.hitCount() + si.missCount(), 4000);
+    }
+
+    @Test
+    public void testAdaptive() {
+        @NotNull Bit8StringInterner si = new Bit8StringInterner(128, 1024);
+        internKeys(si, 1000, 4);
+        assertEquals(1024, si.capacity());
+        assertEquals(3, si.resizeCount());
+        assertTrue(si.valueCount() <= 1000);
+        // entries dropped by a resize count as evictions.
+        assertEquals(si.missCount(), si.valueCount() + si.evictionCount());
+    }
+
+    private static void internKeys(@NotNull Bit8StringInterner si, int keys, int repeats) {
+        for (int r = 0; r < repeats; r++) {
+            for (int i = 0; i < keys; i++) {
+                Bytes b = Bytes.from("key" + i);
+                assertEquals("key" + i, si.intern(b));
+                b.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes.util;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("rawtypes")
+public class BlockCompressionTest {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private static Bytes sample(int length) {
+        Bytes bytes = Bytes.allocateElasticDirect(length);
+        Random rand = new Random(1);
+        while (bytes.writePosition() < length)
+            bytes.append("id: ").append(rand.nextInt(1000)).append(", qty: ").append(rand.nextInt(100)).append('\n');
+        bytes.writePosition(length);
+        return bytes;
+    }
+
+    @Test
+    public void testRoundTrip() throws IORuntimeException {
+        for (Compression compression : new Compression[]{Compressions.LZW, Compressions.LZ4, Compressions.GZIP}) {
+            BlockCompression bc = new BlockCompression(compression, 64 << 10, pool);
+            Bytes from = sample(1_000_000);
+            Bytes frame = Bytes.allocateElasticDirect();
+            Bytes to = Bytes.allocateElasticDirect();
+            try {
+                long length = bc.compress(from, frame);
+                assertEquals(frame.readRemaining(), length);
+                assertTrue(length < from.readRemaining() / 2);
+
+                BlockCompression.Index index = BlockCompression.readIndex(frame);
+                assertEquals(16, index.blockCount());
+                assertEquals(1_000_000, index.uncompressedLength());
+                assertEquals(1_000_000 - 15 * (64 << 10), index.uncompressedLength(15));
+
+                bc.uncompress(frame, to);
+                assertTrue(from.contentEquals(to));
+            } finally {
+                from.release();
+                frame.release();
+                to.release();
+            }
+        }
+    }
+
+    @Test
+    public void testUncompressBlock() throws IORuntimeException {
+        BlockCompression bc = new BlockCompression(Compressions.LZ4, 4096, pool);
+        Bytes from = sample(100_000);
+        Bytes frame = Bytes.allocateElasticDirect();
+        Bytes to = Bytes.allocateElasticDirect();
+        try {
+            bc.compress(from, frame);
+            BlockCompression.Index index = BlockCompression.readIndex(frame);
+            int block = index.blockFor(50_000);
+            assertEquals(12, block);
+            bc.uncompressBlock(frame, index, block, to);
+            assertEquals(4096, to.readRemaining());
+            for (int i = 0; i < 4096; i++)
+                assertEquals(from.readByte(block * 4096L + i), to.readByte(i));
+        } finally {
+            from.release();
+            frame.release();
+            to.release();
+        }
+    }
+
+    @Test
+    public void testEmpty() throws IORuntimeException {
+        BlockCompression bc = new BlockCompression(Compressions.LZW, 4096, pool);
+        Bytes from = Bytes.allocateElasticDirect();
+        Bytes frame = Bytes.allocateElasticDirect();
+        Bytes to = Bytes.allocateElasticDirect();
+        try {
+            bc.compress(from, frame);
+            assertEquals(0, BlockCompression.readIndex(frame).blockCount());
+            bc.uncompress(frame, to);
+            assertEquals(0, to.readRemaining());
+        } finally {
+            from.release();
+            frame.release();
+            to.release();
+        }
+    }
+
+    @Test
+    public void testCorruptIndex() throws IORuntimeException {
+        BlockCompression bc = new BlockCompression(Compressions.LZ4, 4096, pool);
+        Bytes from = sample(20_000);
+        Bytes frame = Bytes.allocateElasticDirect();
+        try {
+            bc.compress(from, frame);
+            long indexOffset = frame.readLong(frame.readLimit() - BlockCompression.TRAILER_SIZE);
+            // a block which ends before it starts, one before the header, and an index which doesn't end at itself.
+            long[][] corruptions = {{2, 16}, {0, 0}, {5, indexOffset - 1}};
+            for (long[] corruption : corruptions) {
+                long position = indexOffset + corruption[0] * 8;
+                long offset = frame.readLong(position);
+                frame.writeLong(position, corruption[1]);
+                try {
+                    BlockCompression.readIndex(frame);
+                    fail("block " + corruption[0]);
+                } catch (IORuntimeException expected) {
+                    assertEquals("Corrupt block compressed frame index", expected.getMessage());
+                }
+                frame.writeLong(position, offset);
+            }
+            assertEquals(5, BlockCompression.readIndex(frame).blockCount());
+        } finally {
+            from.release();
+            frame.release();
+        }
+    }
+
+    @Test(expected = IORuntimeException.class)
+    public void testNotAFrame() throws IORuntimeException {
+        Bytes bytes = Bytes.from("This is not a compressed frame, just some text");
+        try {
+            BlockCompression.readIndex(bytes);
+        } finally {
+            bytes.release();
+        }
+    }
+}
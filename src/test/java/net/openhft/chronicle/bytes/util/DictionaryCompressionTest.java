@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes.util;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("rawtypes")
+public class DictionaryCompressionTest {
+    private static final String[] SYMBOLS = {"AAPL", "MSFT", "GOOG", "AMZN", "IBM", "ORCL"};
+
+    @NotNull
+    private static String message(@NotNull Random rand) {
+        return "!net.openhft.chronicle.Order {\n" +
+                "  orderId: " + (1_000_000 + rand.nextInt(9_000_000)) + ",\n" +
+                "  symbol: " + SYMBOLS[rand.nextInt(SYMBOLS.length)] + ",\n" +
+                "  side: " + (rand.nextBoolean() ? "BUY" : "SELL") + ",\n" +
+                "  quantity: " + rand.nextInt(10_000) + ",\n" +
+                "  price: " + rand.nextInt(100_000) / 100.0 + ",\n" +
+                "  timeInForce: DAY,\n" +
+                "  account: ACC" + rand.nextInt(100) + "\n" +
+                "}\n";
+    }
+
+    @NotNull
+    private static DictionaryCompression train(int id, @NotNull Random rand) {
+        List<Bytes> samples = new ArrayList<>();
+        for (int i = 0; i < 500; i++)
+            samples.add(Bytes.from(message(rand)));
+        try {
+            return DictionaryCompression.train(id, 8 << 10, samples);
+        } finally {
+            samples.forEach(Bytes::release);
+        }
+    }
+
+    @Test
+    public void testCompressionRatio() throws IORuntimeException {
+        @NotNull Random rand = new Random(1);
+        DictionaryCompression dc = train(1, rand);
+        assertTrue(dc.dictionary().length > 0);
+
+        long raw = 0, lzw = 0, dict = 0;
+        for (int i = 0; i < 100; i++) {
+            byte[] bytes = message(rand).getBytes(ISO_8859_1);
+            byte[] compressed = dc.compress(bytes);
+            assertTrue(Arrays.equals(bytes, dc.uncompress(compressed)));
+            raw += bytes.length;
+            lzw += Compressions.LZW.compress(bytes).length;
+            dict += compressed.length;
+        }
+        assertTrue("lzw: " + lzw + ", dict: " + dict, dict * 2 < lzw);
+        assertTrue("raw: " + raw + ", dict: " + dict, dict * 3 < raw);
+    }
+
+    @Test
+    public void testBytes() throws IORuntimeException {
+        @NotNull Random rand = new Random(2);
+        DictionaryCompression dc = train(2, rand);
+        Bytes from = Bytes.from(message(rand));
+        Bytes from2 = Bytes.from(message(rand));
+        Bytes compressed = Bytes.allocateElasticDirect();
+        Bytes to = Bytes.allocateElasticDirect();
+        try {
+            dc.compress(from, compressed);
+            dc.compress(from2, compressed);
+            assertEquals(2, compressed.readUnsignedByte(compressed.readPosition()));
+
+            dc.uncompress(compressed, to);
+            assertEquals(from.toString(), to.toString());
+            to.clear();
+            dc.uncompress(compressed, to);
+            assertEquals(from2.toString(), to.toString());
+            assertEquals(0, compressed.readRemaining());
+        } finally {
+            from.release();
+            from2.release();
+            compressed.release();
+            to.release();
+        }
+    }
+
+    @Test
+    public void testHeapBytes() throws IORuntimeException {
+        @NotNull Random rand = new Random(5);
+        DictionaryCompression dc = train(5, rand);
+        List<String> messages = new ArrayList<>();
+        Bytes compressed = Bytes.elasticHeapByteBuffer(256);
+        Bytes to = Bytes.elasticHeapByteBuffer(256);
+        try {
+            for (int i = 0; i < 50; i++) {
+                StringBuilder sb = new StringBuilder();
+                // some longer than a chunk
+                for (int j = i % 10 == 0 ? 20 : 1; j > 0; j--)
+                    sb.append(message(rand));
+                messages.add(sb.toString());
+                Bytes from = Bytes.elasticHeapByteBuffer(sb.length());
+                from.append(sb);
+                dc.compress(from, compressed);
+                assertEquals(sb.length(), from.readRemaining());
+                from.release();
+            }
+            for (String message : messages) {
+                dc.uncompress(compressed, to.clear());
+                assertEquals(message, to.toString());
+            }
+            assertEquals(0, compressed.readRemaining());
+        } finally {
+            compressed.release();
+            to.release();
+        }
+    }
+
+    @Test
+    public void testRegistered() throws IORuntimeException {
+        @NotNull Random rand = new Random(3);
+        DictionaryCompression dc3 = train(3, rand);
+        DictionaryCompression dc4 = new DictionaryCompression(4, dc3.dictionary());
+        DictionaryCompression.register(dc3);
+        DictionaryCompression.register(dc4);
+        assertSame(dc4, DictionaryCompression.current());
+        assertSame(dc3, DictionaryCompression.forId(3));
+
+        byte[] bytes = message(rand).getBytes(ISO_8859_1);
+        byte[] compressed = dc3.compress(bytes);
+        // the id in the header selects the dictionary.
+        assertTrue(Arrays.equals(bytes, Compression.uncompress("dict", compressed, b -> b)));
+        assertTrue(Arrays.equals(bytes, dc4.uncompress(compressed)));
+    }
+
+    @Test(expected = IORuntimeException.class)
+    public void testUnknownDictionary() throws IORuntimeException {
+        DictionaryCompression dc = new DictionaryCompression(1000, "hello world".getBytes(ISO_8859_1));
+        byte[] compressed = dc.compress("hello world".getBytes(ISO_8859_1));
+        new DictionaryCompression(1001, new byte[0]).uncompress(compressed);
+    }
+}
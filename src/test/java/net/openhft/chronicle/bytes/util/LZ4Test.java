@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes.util;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.MappedBytes;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static net.openhft.chronicle.bytes.util.Compressions.LZ4;
+import static org.junit.Assert.*;
+
+public class LZ4Test {
+
+    @Test
+    public void testCompress() throws IORuntimeException {
+        for (String s : new String[]{"", "hello world", "hello world, hello world, hello world, hello world"}) {
+            @NotNull byte[] bytes = s.getBytes(ISO_8859_1);
+            byte[] bytes2 = LZ4.uncompress(LZ4.compress(bytes));
+            assertTrue(Arrays.equals(bytes, bytes2));
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test
+    public void testCompressionRatio() throws IORuntimeException {
+        @NotNull byte[] bytes = new byte[1 << 20];
+        Arrays.fill(bytes, (byte) 'X');
+        @NotNull Random rand = new Random();
+        for (int i = 0; i < bytes.length; i += 40)
+            bytes[rand.nextInt(bytes.length)] = '1';
+        byte[] compress = LZ4.compress(bytes);
+        assertTrue(compress.length < bytes.length / 4);
+
+        Bytes bytes2 = Bytes.wrapForRead(bytes);
+        @NotNull Bytes bytes3 = Bytes.allocateElasticDirect();
+        LZ4.compress(bytes2, bytes3);
+        @NotNull byte[] bytes4 = bytes3.toByteArray();
+        assertTrue(Arrays.equals(compress, bytes4));
+        assertTrue(Arrays.equals(bytes, LZ4.uncompress(bytes4)));
+
+        @NotNull Bytes bytes6 = Bytes.allocateElasticDirect();
+        Compression.uncompress("lz4", bytes3, bytes6);
+        assertTrue(Arrays.equals(bytes, bytes6.toByteArray()));
+        assertEquals(0, bytes3.readRemaining());
+
+        bytes2.release();
+        bytes3.release();
+        bytes6.release();
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test
+    public void testRandomData() throws IORuntimeException {
+        @NotNull Random rand = new Random(1);
+        for (int length : new int[]{1, 12, 13, 100, 70000}) {
+            @NotNull byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++)
+                bytes[i] = (byte) ('a' + rand.nextInt(4));
+            Bytes from = Bytes.wrapForRead(bytes);
+            Bytes compressed = Bytes.elasticByteBuffer();
+            Compression.compress("lz4", from, compressed);
+            compressed.writeInt(0x12345678);
+
+            Bytes to = Bytes.elasticByteBuffer();
+            LZ4.uncompress(compressed, to);
+            assertTrue(Arrays.equals(bytes, to.toByteArray()));
+            // only the block is consumed
+            assertEquals(0x12345678, compressed.readInt());
+
+            from.release();
+            compressed.release();
+            to.release();
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test
+    public void testMappedBytes() throws IOException {
+        @NotNull Random rand = new Random(2);
+        @NotNull byte[] bytes = new byte[200_000];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = (byte) ('a' + rand.nextInt(4));
+        File file = File.createTempFile("lz4", "bytes");
+        file.deleteOnExit();
+        File file2 = File.createTempFile("lz4", "bytes");
+        file2.deleteOnExit();
+        Bytes from = Bytes.wrapForRead(bytes);
+        // both the compressed and uncompressed data span more than one chunk.
+        try (MappedBytes compressed = MappedBytes.mappedBytes(file, 64 << 10);
+             MappedBytes to = MappedBytes.mappedBytes(file2, 64 << 10)) {
+            compressed.writeLong(-1L);
+            compressed.readSkip(8);
+            LZ4.compress(from, compressed);
+            assertTrue(Arrays.equals(LZ4.compress(bytes), compressed.toByteArray()));
+
+            LZ4.uncompress(compressed, to);
+            assertEquals(0, compressed.readRemaining());
+            assertTrue(Arrays.equals(bytes, to.toByteArray()));
+        } finally {
+            from.release();
+        }
+    }
+
+    @Test(expected = IORuntimeException.class)
+    public void testCorrupt() throws IORuntimeException {
+        byte[] compress = LZ4.compress("hello world, hello world, hello world".getBytes(ISO_8859_1));
+        LZ4.uncompress(Arrays.copyOf(compress, compress.length - 3));
+    }
+}
@@ -88,4 +88,34 @@ public class LZWTest {
 //        assertEquals(Arrays.toString(bytes).replace(", ", "\n"),
 //                Arrays.toString(bytes6.toByteArray()).replace(", ", "\n"));
     }
-}
\ No newline at end of file
+
+    @SuppressWarnings("rawtypes")
+    @Test
+    public void testDirectRoundTrip() throws IORuntimeException {
+        @NotNull byte[] bytes = new byte[100_000];
+        @NotNull Random rand = new Random(1);
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = (byte) ('a' + rand.nextInt(4));
+        byte[] compress = LZW.compress(bytes);
+
+        @NotNull Bytes from = Bytes.allocateElasticDirect();
+        @NotNull Bytes compressed = Bytes.allocateElasticDirect(16);
+        @NotNull Bytes uncompressed = Bytes.allocateElasticDirect(16);
+        try {
+            from.write(bytes);
+            LZW.compress(from, compressed);
+            assertEquals(bytes.length, from.readRemaining());
+            assertTrue(Arrays.equals(compress, compressed.toByteArray()));
+
+            // trailing bytes are not part of the compressed data.
+            compressed.writeLong(-1L);
+            LZW.uncompress(compressed, uncompressed);
+            assertTrue(Arrays.equals(bytes, uncompressed.toByteArray()));
+            assertTrue(Arrays.equals(bytes, LZW.uncompress(compress)));
+        } finally {
+            from.release();
+            compressed.release();
+            uncompressed.release();
+        }
+    }
+}
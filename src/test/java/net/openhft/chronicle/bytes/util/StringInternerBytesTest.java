@@ -21,6 +21,7 @@ import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 /*
  * Created by Peter Lawrey on 17/09/15.
@@ -38,4 +39,23 @@ public class StringInternerBytesTest {
         }
         assertEquals(89, si.valueCount());
     }
+
+    @SuppressWarnings("rawtypes")
+    @Test
+    public void testIntern8bit() {
+        @NotNull StringInternerBytes si = new StringInternerBytes(128);
+        Bytes b = Bytes.allocateElasticDirect();
+        try {
+            b.append8bit("caf\u00e9 \u00ff\u0080 and a longer tail of ascii text");
+            long position = b.readPosition();
+            String s = si.intern(b, (int) b.readRemaining());
+            assertEquals("caf\u00e9 \u00ff\u0080 and a longer tail of ascii text", s);
+            assertEquals(0, b.readRemaining());
+
+            b.readPosition(position);
+            assertSame(s, si.intern(b));
+        } finally {
+            b.release();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes.util;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+@SuppressWarnings("rawtypes")
+public class SymbolTableTest {
+
+    @Test
+    public void testIdFor() {
+        try (SymbolTable st = new SymbolTable(16)) {
+            for (int i = 0; i < 1000; i++) {
+                Bytes b = Bytes.from("TICKER" + i);
+                assertEquals(i, st.idFor(b));
+                b.release();
+            }
+            assertEquals(1000, st.size());
+
+            Bytes using = Bytes.elasticByteBuffer();
+            for (int i = 999; i >= 0; i--) {
+                Bytes b = Bytes.from("TICKER" + i);
+                assertEquals(i, st.idFor(b));
+                assertEquals(i, st.findId(b, (int) b.readRemaining()));
+                b.release();
+
+                using.clear();
+                st.bytesFor(i, using);
+                assertEquals("TICKER" + i, using.toString());
+                assertEquals("TICKER" + i, st.bytesFor(i).toString());
+                assertEquals(using.readRemaining(), st.lengthFor(i));
+            }
+            using.release();
+            assertEquals(1000, st.size());
+
+            Bytes b = Bytes.from("unknown");
+            assertEquals(-1, st.findId(b, (int) b.readRemaining()));
+            b.release();
+        }
+    }
+
+    @Test
+    public void testRead8bitId() {
+        try (SymbolTable st = new SymbolTable(16)) {
+            Bytes b = Bytes.elasticByteBuffer();
+            b.write8bit("EURUSD");
+            b.write8bit("GBPUSD");
+            b.write8bit((CharSequence) null);
+            b.write8bit("EURUSD");
+            b.write8bit("");
+
+            assertEquals(0, st.read8bitId(b));
+            assertEquals(1, st.read8bitId(b));
+            assertEquals(-1, st.read8bitId(b));
+            assertEquals(0, st.read8bitId(b));
+            assertEquals(2, st.read8bitId(b));
+            assertEquals(0, b.readRemaining());
+            b.release();
+
+            assertEquals("GBPUSD", st.bytesFor(1).toString());
+            assertEquals(0, st.lengthFor(2));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 higherfrequencytrading.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.bytes.util;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("rawtypes")
+public class TimeSeriesCodecTest {
+
+    private static void roundTrip(long[] timestamps, double[] values, Bytes bytes) {
+        TimeSeriesCodec.Encoder encoder = new TimeSeriesCodec.Encoder(bytes);
+        for (int i = 0; i < timestamps.length; i++)
+            encoder.append(timestamps[i], values[i]);
+        encoder.finish();
+        assertEquals(timestamps.length, encoder.count());
+
+        TimeSeriesCodec.Decoder decoder = new TimeSeriesCodec.Decoder(bytes);
+        assertEquals(timestamps.length, decoder.count());
+        for (int i = 0; i < timestamps.length; i++) {
+            assertTrue(decoder.next());
+            assertEquals(timestamps[i], decoder.timestamp());
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(decoder.value()));
+        }
+        assertFalse(decoder.next());
+        assertEquals(0, bytes.readRemaining());
+    }
+
+    @Test
+    public void testTicks() {
+        Random rand = new Random(1);
+        int count = 10_000;
+        long[] timestamps = new long[count];
+        double[] values = new double[count];
+        long time = 1_500_000_000_000L;
+        long price = 12345;
+        for (int i = 0; i < count; i++) {
+            // mostly once a millisecond, prices moving by a cent at a time.
+            timestamps[i] = time += rand.nextInt(10) == 0 ? rand.nextInt(100) : 1;
+            price += rand.nextInt(3) - 1;
+            values[i] = price / 100.0;
+        }
+        Bytes bytes = Bytes.allocateElasticDirect();
+        try {
+            roundTrip(timestamps, values, bytes);
+            // 16 bytes a pair uncompressed
+            assertTrue(bytes.writePosition() < count * 16 / 3);
+        } finally {
+            bytes.release();
+        }
+    }
+
+    @Test
+    public void testExtremes() {
+        long[] timestamps = {Long.MIN_VALUE, Long.MAX_VALUE, 0, 0, -1, 1L << 40, (1L << 40) + 64, Long.MIN_VALUE};
+        double[] values = {Double.NaN, -0.0, 0.0, Double.POSITIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE, 1, 1};
+        Bytes bytes = Bytes.elasticHeapByteBuffer(16);
+        try {
+            roundTrip(timestamps, values, bytes);
+        } finally {
+            bytes.release();
+        }
+    }
+
+    @Test
+    public void testFollowedByOtherData() {
+        Bytes bytes = Bytes.allocateElasticDirect();
+        try {
+            TimeSeriesCodec.Encoder encoder = new TimeSeriesCodec.Encoder(bytes);
+            for (int i = 0; i < 100; i++)
+                encoder.append(i * 1000L, i % 3);
+            encoder.finish();
+            bytes.writeUtf8("after");
+
+            TimeSeriesCodec.Decoder decoder = new TimeSeriesCodec.Decoder(bytes);
+            while (decoder.next())
+                assertEquals(decoder.timestamp() / 1000 % 3, decoder.value(), 0.0);
+            assertEquals("after", bytes.readUtf8());
+        } finally {
+            bytes.release();
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        Bytes bytes = Bytes.allocateElasticDirect();
+        try {
+            roundTrip(new long[0], new double[0], bytes);
+            assertEquals(4, bytes.writePosition());
+        } finally {
+            bytes.release();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAppendAfterFinish() {
+        Bytes bytes = Bytes.allocateElasticDirect();
+        try {
+            TimeSeriesCodec.Encoder encoder = new TimeSeriesCodec.Encoder(bytes);
+            encoder.finish();
+            encoder.append(1, 1);
+        } finally {
+            bytes.release();
+        }
+    }
+}